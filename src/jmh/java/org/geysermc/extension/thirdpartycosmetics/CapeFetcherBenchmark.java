@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.geysermc.extension.thirdpartycosmetics.capes.CapeFetcher;
+import org.geysermc.extension.thirdpartycosmetics.config.ConfigLoader;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.CosmeticHttpClient;
+import org.geysermc.geyser.api.skin.Cape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole cape lookup, from the provider race through the download to the decoded cape,
+ * against providers served in-process. Every lookup is for a new player so nothing comes from the cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CapeFetcherBenchmark {
+
+    /**
+     * Standard cape and an HD cape
+     */
+    @Param({"64x32", "1024x512"})
+    public String size;
+
+    /**
+     * Delay before each provider answers, in milliseconds
+     */
+    @Param({"0", "20"})
+    public int latency;
+
+    /**
+     * Which of the three providers has the cape, the ones before it answer with a 404
+     */
+    @Param({"0", "2"})
+    public int hitProvider;
+
+    @Param({"sequential", "parallel"})
+    public String resolution;
+
+    private StubProviderServer server;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new StubProviderServer();
+        server.latency(latency);
+
+        String[] dimensions = size.split("x");
+        server.serve("provider" + hitProvider, StubProviderServer.randomPng(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1])));
+
+        // The provider lists are only set when a config is read
+        JsonObject json = new JsonObject();
+        json.add("cape_urls", new Gson().toJsonTree(List.of(
+            new CosmeticConfig.CosmeticProviders("provider0", 0, server.url("provider0")),
+            new CosmeticConfig.CosmeticProviders("provider1", 1, server.url("provider1")),
+            new CosmeticConfig.CosmeticProviders("provider2", 2, server.url("provider2"))
+        )));
+        CosmeticConfig config = ConfigLoader.readConfig(new StringReader(json.toString()));
+        config.diskCache = false;
+        // Random pixels don't compress, so the HD cape is bigger than a real one would be
+        config.maxDownloadSize = 8 * 1024;
+        config.capeResolution = CosmeticConfig.ResolutionMode.valueOf(resolution.toUpperCase());
+        ThirdPartyCosmetics.applyConfig(config);
+        CosmeticExecutor.start(config.fetchThreads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        CapeFetcher.CACHE.clear();
+        CosmeticHttpClient.reset();
+        CosmeticExecutor.shutdown();
+        server.close();
+    }
+
+    @Benchmark
+    public Cape request() {
+        return CapeFetcher.request(UUID.randomUUID(), "Player", FetchScheduler.Priority.NORMAL).join();
+    }
+}
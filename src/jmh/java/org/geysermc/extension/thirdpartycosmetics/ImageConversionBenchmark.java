@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converting between the RGBA bytes Bedrock uses and the images we decode and draw on.
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageConversionBenchmark {
+
+    /**
+     * Standard cape, standard skin and an HD cape
+     */
+    @Param({"64x32", "64x64", "1024x512"})
+    public String size;
+
+    private int width;
+    private int height;
+    private byte[] imageData;
+    private BufferedImage image;
+    private BufferedImage decodedImage;
+
+    @Setup
+    public void setup() throws IOException {
+        String[] dimensions = size.split("x");
+        width = Integer.parseInt(dimensions[0]);
+        height = Integer.parseInt(dimensions[1]);
+
+        imageData = new byte[width * height * 4];
+        new Random(0).nextBytes(imageData);
+        image = Utils.imageDataToBufferedImage(imageData, width, height);
+
+        // Round trip through a PNG to get the image type ImageIO gives us for downloads
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        decodedImage = ImageIO.read(new ByteArrayInputStream(png.toByteArray()));
+    }
+
+    @Benchmark
+    public BufferedImage imageDataToBufferedImage() {
+        return Utils.imageDataToBufferedImage(imageData, width, height);
+    }
+
+    @Benchmark
+    public byte[] bufferedImageToImageData() {
+        return Utils.bufferedImageToImageData(image);
+    }
+
+    @Benchmark
+    public byte[] decodedImageToImageData() {
+        return Utils.bufferedImageToImageData(decodedImage);
+    }
+
+    /**
+     * The per-pixel conversion we used to do, kept as a baseline
+     */
+    @Benchmark
+    public BufferedImage perPixelImageDataToBufferedImage() {
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int index = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.setRGB(x, y, Utils.getRGBA(index, imageData));
+                index += 4;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The per-pixel conversion we used to do, kept as a baseline
+     */
+    @Benchmark
+    public byte[] perPixelBufferedImageToImageData() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(width * 4 + height * 4);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgba = decodedImage.getRGB(x, y);
+                outputStream.write((rgba >> 16) & 0xFF);
+                outputStream.write((rgba >> 8) & 0xFF);
+                outputStream.write(rgba & 0xFF);
+                outputStream.write((rgba >> 24) & 0xFF);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureStore;
+import org.geysermc.extension.thirdpartycosmetics.config.ConfigLoader;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.CosmeticHttpClient;
+import org.geysermc.extension.thirdpartycosmetics.metrics.MetricsExporter;
+import org.geysermc.geyser.api.event.bedrock.SessionSkinApplyEvent;
+import org.geysermc.geyser.api.extension.ExtensionLogger;
+import org.geysermc.geyser.api.skin.Cape;
+import org.geysermc.geyser.api.skin.Skin;
+import org.geysermc.geyser.api.skin.SkinData;
+import org.geysermc.geyser.api.skin.SkinGeometry;
+
+import java.io.StringReader;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a join storm offline. Synthetic skin apply events go through {@link ThirdPartyCosmetics#onSkinApplyEvent}
+ * at a fixed arrival rate, against the default providers mirrored by a {@link StubProviderServer}.
+ * <p>
+ * Run it with {@code ./gradlew loadTest -PloadTestArgs=events=5000,rate=500}. The options are:
+ * <ul>
+ *     <li>{@code events} - how many skin apply events to send</li>
+ *     <li>{@code players} - how many distinct players they are for, fewer players than events means repeat joins</li>
+ *     <li>{@code rate} - events per second</li>
+ *     <li>{@code latency} - how long the providers take to answer, in milliseconds</li>
+ *     <li>{@code errors} - the fraction of provider requests that fail</li>
+ *     <li>{@code hits} - the fraction of players that have a cosmetic at each provider</li>
+ *     <li>{@code size} - the size of the capes served, such as 64x32 or 2048x1024</li>
+ *     <li>{@code textures} - how many distinct capes each provider serves</li>
+ *     <li>{@code offheap} - the off-heap texture budget in MB, 0 keeps the cached textures on the heap</li>
+ *     <li>{@code config} - a config.json to use instead of the defaults, its provider URLs are mirrored too</li>
+ * </ul>
+ */
+public class LoadTest {
+    private static final SkinGeometry GEOMETRY = new SkinGeometry("{\"geometry\" :{\"default\" :\"geometry.humanoid.custom\"}}", "");
+    private static final Cape NO_CAPE = new Cape("", "no-cape", new byte[0], true);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            for (String option : arg.split(",")) {
+                String[] parts = option.split("=", 2);
+                if (parts.length == 2) options.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+
+        int events = Integer.parseInt(options.getOrDefault("events", "5000"));
+        int players = Integer.parseInt(options.getOrDefault("players", "2000"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "500"));
+        String[] size = options.getOrDefault("size", "64x32").split("x");
+        int textures = Integer.parseInt(options.getOrDefault("textures", "16"));
+
+        try (StubProviderServer server = new StubProviderServer()) {
+            server.latency(Integer.parseInt(options.getOrDefault("latency", "50")));
+            server.errorRate(Double.parseDouble(options.getOrDefault("errors", "0.01")));
+            server.hitRate(Double.parseDouble(options.getOrDefault("hits", "0.3")));
+
+            CosmeticConfig loaded = options.containsKey("config") ? ConfigLoader.readConfig(Path.of(options.get("config"))) : new CosmeticConfig();
+            // The provider lists are only set when a config is read, so read it again with them mirrored
+            Gson gson = new Gson();
+            JsonObject json = gson.toJsonTree(loaded).getAsJsonObject();
+            json.add("cape_urls", gson.toJsonTree(mirror(server, loaded.capeUrls)));
+            json.add("ears_urls", gson.toJsonTree(mirror(server, loaded.earsUrls)));
+            CosmeticConfig config = ConfigLoader.readConfig(new StringReader(json.toString()));
+            config.diskCache = false;
+            if (options.containsKey("offheap")) config.offHeapCacheSize = Integer.parseInt(options.get("offheap"));
+
+            // Every provider is on the same host here, give each of them the connections it would have on its own
+            Set<String> providers = new HashSet<>();
+            config.capeUrls.forEach(provider -> providers.add(provider.name()));
+            config.earsUrls.forEach(provider -> providers.add(provider.name()));
+            config.maxConnectionsPerHost *= Math.max(1, providers.size());
+
+            byte[][] capes = new byte[textures][];
+            for (int i = 0; i < textures; i++) {
+                capes[i] = StubProviderServer.randomPng(Integer.parseInt(size[0]), Integer.parseInt(size[1]), i);
+            }
+            // Ears come from the same textures, a provider with both only has the one path and the one profile
+            for (CosmeticConfig.CosmeticProviders provider : config.capeUrls) {
+                server.serve(provider.name(), capes);
+                server.serve(provider.name() + "-profile", capes);
+            }
+            for (CosmeticConfig.CosmeticProviders provider : config.earsUrls) {
+                server.serve(provider.name(), capes);
+                server.serve(provider.name() + "-profile", capes);
+            }
+
+            ThirdPartyCosmetics.applyConfig(config);
+            CosmeticExecutor.start(config.fetchThreads);
+
+            UUID[] playerIds = new UUID[Math.max(1, players)];
+            for (int i = 0; i < playerIds.length; i++) {
+                playerIds[i] = UUID.randomUUID();
+            }
+
+            System.out.printf(Locale.ROOT, "Sending %d skin apply events for %d players at %d/s%n", events, playerIds.length, rate);
+            run(new Extension(), playerIds, events, rate, server);
+        } finally {
+            CosmeticHttpClient.reset();
+            CosmeticExecutor.shutdown();
+        }
+    }
+
+    private static void run(Extension extension, UUID[] playerIds, int events, int rate, StubProviderServer server) throws InterruptedException {
+        // Every event gets its own thread while it waits, like a session does
+        ExecutorService sessions = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "LoadTest session");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long[] latencies = new long[events];
+        CountDownLatch done = new CountDownLatch(events);
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long gcCount = gcCount();
+        long gcTime = gcTime();
+        long requests = server.requests();
+
+        long start = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, rate);
+        for (int i = 0; i < events; i++) {
+            // Measure from when the event was due rather than when it was sent, so a stall shows up as latency
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) LockSupport.parkNanos(wait);
+
+            int index = i;
+            UUID playerId = playerIds[i % playerIds.length];
+            sessions.execute(() -> {
+                try {
+                    extension.onSkinApplyEvent(new SkinApplyEvent(playerId, "Player" + (index % playerIds.length)));
+                } finally {
+                    latencies[index] = System.nanoTime() - due;
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        sessions.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf(Locale.ROOT, "Join latency: p50 %.1f ms, p99 %.1f ms, p999 %.1f ms, max %.1f ms%n",
+            percentile(latencies, 0.5), percentile(latencies, 0.99), percentile(latencies, 0.999), latencies[events - 1] / 1e6);
+        System.out.printf(Locale.ROOT, "Throughput: %.1f events/s over %.1f s%n", events / (elapsed / 1e9), elapsed / 1e9);
+        System.out.printf(Locale.ROOT, "Provider requests: %d%n", server.requests() - requests);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf(Locale.ROOT, "Heap: peak %.1f MB, now %.1f MB, %d GCs taking %d ms%n", peakHeap / 1048576.0,
+            ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1048576.0, gcCount() - gcCount, gcTime() - gcTime);
+        if (TextureStore.OFF_HEAP.enabled()) {
+            System.out.printf(Locale.ROOT, "Off-heap textures: %.1f MB used, %.1f MB reserved%n", TextureStore.OFF_HEAP.usedBytes() / 1048576.0,
+                TextureStore.OFF_HEAP.reservedBytes() / 1048576.0);
+        }
+
+        for (String line : MetricsExporter.summary()) {
+            System.out.println(line);
+        }
+    }
+
+    private static List<CosmeticConfig.CosmeticProviders> mirror(StubProviderServer server, List<CosmeticConfig.CosmeticProviders> providers) {
+        List<CosmeticConfig.CosmeticProviders> mirrored = new ArrayList<>();
+        for (CosmeticConfig.CosmeticProviders provider : providers) {
+            mirrored.add(new CosmeticConfig.CosmeticProviders(provider.name(), provider.priority(), server.mirror(provider.name(), provider.url()),
+                provider.connectTimeout(), provider.readTimeout(), provider.timeout(), provider.defaultTextures(),
+                provider.batchUrl() != null ? server.mirror(provider.name(), provider.batchUrl()) : null, provider.batchWindow(), provider.batchMaxSize(),
+                provider.profileUrl() != null ? server.mirror(provider.name() + "-profile", provider.profileUrl()) : null, provider.disabled()));
+            if (provider.profileUrl() != null) {
+                server.serveProfiles(provider.name() + "-profile");
+            }
+        }
+        return List.copyOf(mirrored);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1)] / 1e6;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * The extension without Geyser around it, so it logs nowhere
+     */
+    private static class Extension extends ThirdPartyCosmetics {
+        private final ExtensionLogger logger = (ExtensionLogger) Proxy.newProxyInstance(ExtensionLogger.class.getClassLoader(), new Class<?>[]{ExtensionLogger.class},
+            (proxy, method, arguments) -> method.getReturnType() == boolean.class ? false : null);
+
+        @Override
+        public ExtensionLogger logger() {
+            return logger;
+        }
+    }
+
+    /**
+     * A Java player joining with a plain skin and no cape
+     */
+    private static class SkinApplyEvent extends SessionSkinApplyEvent {
+        private SkinData skinData;
+
+        private SkinApplyEvent(UUID playerId, String username) {
+            this(playerId, username, new SkinData(new Skin("steve", new byte[64 * 64 * 4]), NO_CAPE, GEOMETRY));
+        }
+
+        private SkinApplyEvent(UUID playerId, String username, SkinData skinData) {
+            super(null, username, playerId, false, false, skinData);
+            this.skinData = skinData;
+        }
+
+        @Override
+        public SkinData skinData() {
+            return skinData;
+        }
+
+        @Override
+        public void skin(Skin newSkin) {
+            skinData = new SkinData(newSkin, skinData.cape(), skinData.geometry());
+        }
+
+        @Override
+        public void cape(Cape newCape) {
+            skinData = new SkinData(skinData.skin(), newCape, skinData.geometry());
+        }
+
+        @Override
+        public void geometry(SkinGeometry newGeometry) {
+            skinData = new SkinData(skinData.skin(), skinData.cape(), newGeometry);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in-process cosmetic provider that serves canned PNGs after a configurable delay.
+ * Each provider is served under its own path, {@code /<provider>/...}, anything not registered is a 404.
+ * Providers can serve profiles instead, with the cape and ears of a player in one JSON response.
+ * Which players have a texture, and which one, is decided by the request path, so a player always gets the same answer.
+ */
+public class StubProviderServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "StubProviderServer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, byte[][]> textures = new ConcurrentHashMap<>();
+    private final Set<String> profiles = ConcurrentHashMap.newKeySet();
+    private final LongAdder requests = new LongAdder();
+    private volatile int latency;
+    private volatile double errorRate;
+    private volatile double hitRate = 1;
+
+    public StubProviderServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                requests.increment();
+                if (latency > 0) {
+                    Thread.sleep(latency);
+                }
+
+                if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    exchange.sendResponseHeaders(500, -1);
+                    return;
+                }
+
+                String requestPath = exchange.getRequestURI().getPath();
+                String[] path = requestPath.split("/");
+                byte[][] provided = path.length > 1 ? textures.get(path[1]) : null;
+
+                // Spread the players over [0, 1) by their path, the ones under the hit rate have a texture
+                int hash = requestPath.hashCode() * 0x9E3779B9;
+                if (provided == null || (hash & 0xFFFFFFFFL) / 0x1p32 >= hitRate) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+
+                byte[] texture = provided[Math.floorMod(hash, provided.length)];
+                if (profiles.contains(path[1])) {
+                    // Profiles carry the cape and ears together, both are the players texture here
+                    String encoded = Base64.getEncoder().encodeToString(texture);
+                    texture = ("{\"textures\":{\"cape\":\"" + encoded + "\",\"ears\":\"" + encoded + "\"}}").getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                } else {
+                    exchange.getResponseHeaders().set("Content-Type", "image/png");
+                }
+                exchange.sendResponseHeaders(200, texture.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(texture);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Serve textures for the players of a provider, each player always gets the same one
+     *
+     * @param provider The provider path
+     * @param pngs The encoded textures
+     */
+    public void serve(String provider, byte[]... pngs) {
+        textures.put(provider, pngs);
+    }
+
+    /**
+     * Answer every request for a provider with a profile, a JSON object holding the players cape and ears
+     *
+     * @param provider The provider path
+     */
+    public void serveProfiles(String provider) {
+        profiles.add(provider);
+    }
+
+    /**
+     * @param latency How long to wait before answering, in milliseconds
+     */
+    public void latency(int latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @param errorRate The fraction of requests answered with a 500
+     */
+    public void errorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param hitRate The fraction of players that have a texture, the rest get a 404
+     */
+    public void hitRate(double hitRate) {
+        this.hitRate = hitRate;
+    }
+
+    /**
+     * @return The number of requests received so far
+     */
+    public long requests() {
+        return requests.sum();
+    }
+
+    /**
+     * @param provider The provider path
+     * @return A URL template for the provider, in the same format as the config
+     */
+    public String url(String provider) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + provider + "/{uuid}.png";
+    }
+
+    /**
+     * Point a real provider URL at this server, keeping its path and placeholders
+     *
+     * @param provider The provider path
+     * @param url The URL template of the real provider
+     * @return The same URL template served by this server
+     */
+    public String mirror(String provider, String url) {
+        String path = url.substring(url.indexOf('/', url.indexOf("://") + 3));
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + provider + path;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Create a PNG of random pixels
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @return The encoded image
+     */
+    public static byte[] randomPng(int width, int height) throws IOException {
+        return randomPng(width, height, 0);
+    }
+
+    /**
+     * Create a PNG of random pixels, different seeds give different textures of the same size
+     *
+     * @param width The width of the image
+     * @param height The height of the image
+     * @param seed The seed for the pixels
+     * @return The encoded image
+     */
+    public static byte[] randomPng(int width, int height, int seed) throws IOException {
+        byte[] imageData = new byte[width * height * 4];
+        new Random(width * 31L + height + seed * 961L).nextBytes(imageData);
+        BufferedImage image = Utils.imageDataToBufferedImage(imageData, width, height);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+}
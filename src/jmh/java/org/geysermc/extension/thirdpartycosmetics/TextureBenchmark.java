@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.ears.EarsFetcher;
+import org.geysermc.extension.thirdpartycosmetics.ears.EarsTexture;
+import org.geysermc.geyser.api.skin.Skin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done on a downloaded texture before it is sent to Bedrock
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TextureBenchmark {
+
+    /**
+     * Sizes capes are served at, from standard up to the largest HD capes
+     */
+    @Param({"64x32", "128x64", "512x256", "1024x512", "2048x1024"})
+    public String capeSize;
+
+    private int capeWidth;
+    private int capeHeight;
+    private byte[] capeData;
+    private BufferedImage capeImage;
+
+    private Skin skin;
+    private EarsTexture ears;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+
+        String[] dimensions = capeSize.split("x");
+        capeWidth = Integer.parseInt(dimensions[0]);
+        capeHeight = Integer.parseInt(dimensions[1]);
+        capeData = new byte[capeWidth * capeHeight * 4];
+        random.nextBytes(capeData);
+        capeImage = Utils.imageDataToBufferedImage(capeData, capeWidth, capeHeight);
+
+        byte[] skinData = new byte[64 * 64 * 4];
+        random.nextBytes(skinData);
+        skin = new Skin("skin", skinData);
+
+        // The ears layout MinecraftCapes serves, 14x7 with partial transparency
+        byte[] earsData = new byte[14 * 7 * 4];
+        random.nextBytes(earsData);
+        ears = new EarsTexture("ears", earsData, 14, 7);
+    }
+
+    @Benchmark
+    public byte[] resizeCape() {
+        return Utils.resizeCape(capeData, capeWidth, capeHeight);
+    }
+
+    @Benchmark
+    public UUID imageToUuid() throws Exception {
+        return Utils.imageToUuid(capeImage);
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        return Utils.fingerprint(capeData, capeWidth, capeHeight);
+    }
+
+    @Benchmark
+    public Skin applyEars() {
+        return EarsFetcher.applyEars(skin, ears);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits the background refreshes of stale cache entries, so a burst of joins from players with
+ * stale cosmetics can't turn into a burst of provider requests.
+ */
+public class BackgroundRefresh {
+    private static final Object LOCK = new Object();
+    // Start with a full budget, it is capped at the configured rate on first use
+    private static double tokens = Double.MAX_VALUE;
+    private static long lastRefill = System.nanoTime();
+
+    /**
+     * Take a refresh from the budget
+     *
+     * @return If a refresh may be started now
+     */
+    public static boolean tryAcquire() {
+        int rate = ThirdPartyCosmetics.config().backgroundRefreshRate;
+        if (rate <= 0) return false;
+
+        synchronized (LOCK) {
+            long now = System.nanoTime();
+            // Allow up to a second's worth of refreshes to build up
+            tokens = Math.min(rate, tokens + (now - lastRefill) * rate / (double) TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+
+            if (tokens < 1) return false;
+            tokens--;
+            return true;
+        }
+    }
+}
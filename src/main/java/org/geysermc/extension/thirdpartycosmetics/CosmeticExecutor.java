@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CosmeticExecutor {
+    private static volatile ExecutorService executor;
+
+    /**
+     * Start the shared pool that all provider requests run on
+     *
+     * @param threads The maximum number of concurrent fetches
+     */
+    public static synchronized void start(int threads) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+
+        int poolSize = Math.max(1, threads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+            poolSize, poolSize,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            new CosmeticThreadFactory()
+        );
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    /**
+     * Get the shared fetch pool, starting it with a single thread if it hasn't been started yet
+     *
+     * @return The executor provider requests should run on
+     */
+    public static ExecutorService get() {
+        ExecutorService current = executor;
+        if (current == null) {
+            synchronized (CosmeticExecutor.class) {
+                if (executor == null) {
+                    start(1);
+                }
+                current = executor;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Stop the fetch pool, interrupting any in-flight requests
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static class CosmeticThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "ThirdPartyCosmetics-Fetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
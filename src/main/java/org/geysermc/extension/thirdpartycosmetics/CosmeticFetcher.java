@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.cache.CacheBackend;
+import org.geysermc.extension.thirdpartycosmetics.cache.CosmeticCache;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.BatchLookup;
+import org.geysermc.extension.thirdpartycosmetics.http.CosmeticHttpClient;
+import org.geysermc.extension.thirdpartycosmetics.http.Download;
+import org.geysermc.extension.thirdpartycosmetics.http.ProfileLookup;
+import org.geysermc.extension.thirdpartycosmetics.http.ProviderHealth;
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+import org.geysermc.extension.thirdpartycosmetics.metrics.Metrics;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds one kind of cosmetic for a player, asking the configured providers and caching what they answer
+ * in memory and in the cache backend. Subclasses only say where the kind is configured and how its textures
+ * are turned into the cosmetic.
+ *
+ * @param <T> The cosmetic
+ */
+public abstract class CosmeticFetcher<T> {
+    private final String name;
+    private final String profileTexture;
+    private final int decodeWidth;
+    private final int decodeHeight;
+    private final CosmeticCache<T> cache;
+
+    private final SingleFlight<String, T> inFlight = new SingleFlight<>();
+    private final SingleFlight<String, T> refreshing = new SingleFlight<>();
+
+    /**
+     * @param name What the cosmetic is called in log messages
+     * @param profileTexture The texture to take out of a provider profile, see {@link ProfileLookup}
+     * @param decodeWidth The width to subsample large textures towards while decoding, or 0 to keep them as they are
+     * @param decodeHeight The height to subsample large textures towards while decoding, or 0 to keep them as they are
+     * @param cache The in-memory cache
+     */
+    protected CosmeticFetcher(String name, String profileTexture, int decodeWidth, int decodeHeight, CosmeticCache<T> cache) {
+        this.name = name;
+        this.profileTexture = profileTexture;
+        this.decodeWidth = decodeWidth;
+        this.decodeHeight = decodeHeight;
+        this.cache = cache;
+    }
+
+    /**
+     * @return The providers to ask, in priority order
+     */
+    protected abstract List<CosmeticConfig.CosmeticProviders> providers(CosmeticConfig config);
+
+    /**
+     * @return How many providers may be asked at once
+     */
+    protected abstract int parallelism(CosmeticConfig config);
+
+    /**
+     * @return How long past its expiry a cosmetic may still be served while it is refreshed, in seconds
+     */
+    protected abstract int staleSeconds(CosmeticConfig config);
+
+    /**
+     * Turn a downloaded texture that isn't a placeholder into the cosmetic
+     *
+     * @param provider The provider it came from
+     * @param url The URL it was downloaded from
+     * @param image The decoded texture
+     * @return The cosmetic
+     */
+    protected abstract T create(CosmeticConfig.CosmeticProviders provider, String url, ImageDecoder.Image image);
+
+    /**
+     * Turn a texture kept in the cache backend back into the cosmetic
+     *
+     * @param url The URL it was downloaded from
+     * @param imageData The RGBA texture
+     * @param width The texture width
+     * @param height The texture height
+     * @return The cosmetic
+     */
+    protected abstract T restore(String url, byte[] imageData, int width, int height);
+
+    /**
+     * @return The RGBA texture of a cosmetic, as it is kept in the cache backend
+     */
+    protected abstract byte[] imageData(T cosmetic);
+
+    protected abstract int width(T cosmetic);
+
+    protected abstract int height(T cosmetic);
+
+    /**
+     * Try and find the cosmetic for a Java player
+     *
+     * @param playerId The players UUID
+     * @param username The players username
+     * @param priority How urgently the lookup is needed
+     * @return The cosmetic, or null if no provider has one
+     */
+    public CompletableFuture<T> request(UUID playerId, String username, FetchScheduler.Priority priority) {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        List<CosmeticConfig.CosmeticProviders> providers = providers(config);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.lookupTimeout);
+
+        return ProviderRace.race(providers.size(), parallelism(config), index -> {
+            CosmeticConfig.CosmeticProviders provider = providers.get(index);
+            int providerTimeout = ProviderHealth.of(provider.name()).timeout(provider.timeout() > 0 ? provider.timeout() : config.providerTimeout);
+            int timeout = (int) Math.min(providerTimeout, Utils.remainingMillis(deadline));
+            if (timeout == 0) return CompletableFuture.completedFuture(null);
+
+            return request(provider, provider.getUrl(playerId, username), playerId, username, timeout, priority)
+                .completeOnTimeout(null, timeout, TimeUnit.MILLISECONDS);
+        }, Objects::nonNull, null);
+    }
+
+    /**
+     * Look up the cosmetic a single provider has for a player
+     *
+     * @return The cosmetic, or null if the provider doesn't have one
+     */
+    private CompletableFuture<T> request(CosmeticConfig.CosmeticProviders provider, String url, UUID playerId, String username, int timeout, FetchScheduler.Priority priority) {
+        if (url == null || url.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        // Check if we have already looked this player up recently
+        CosmeticCache.Entry<T> cached = cache.peek(provider.name(), playerId);
+        if (cached != null && !cached.expired()) {
+            Metrics.increment(provider.name(), Metrics.Counter.MEMORY_CACHE_HIT);
+            return CompletableFuture.completedFuture(cached.value());
+        }
+
+        // Don't keep the player waiting on the provider, the next join picks up whatever the refresh finds
+        if (cached != null && cached.stale(staleSeconds(ThirdPartyCosmetics.config()))) {
+            Metrics.increment(provider.name(), Metrics.Counter.STALE_HIT);
+            refreshInBackground(provider, url, playerId, username, cached, timeout);
+            return CompletableFuture.completedFuture(cached.value());
+        }
+        Metrics.increment(provider.name(), Metrics.Counter.MEMORY_CACHE_MISS);
+
+        // Share the lookup with anyone else already asking for the same cosmetic
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        return inFlight.run(url, () -> lookup(provider, url, playerId, username, deadline, priority));
+    }
+
+    private CompletableFuture<T> lookup(CosmeticConfig.CosmeticProviders provider, String url, UUID playerId, String username, long deadline, FetchScheduler.Priority priority) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CosmeticExecutor.get().execute(() -> {
+            // Check if a previous run already looked this player up
+            CosmeticCache.Entry<T> stored = load(provider, url, playerId);
+            if (stored != null && !stored.expired()) {
+                result.complete(stored.value());
+                return;
+            }
+
+            int timeout = (int) Utils.remainingMillis(deadline);
+            if (stored != null && stored.stale(staleSeconds(ThirdPartyCosmetics.config()))) {
+                Metrics.increment(provider.name(), Metrics.Counter.STALE_HIT);
+                result.complete(stored.value());
+                refreshInBackground(provider, url, playerId, username, stored, timeout);
+                return;
+            }
+
+            // Ask the provider if our expired copy is still current rather than downloading it again
+            CosmeticCache.Entry<T> previous = stored != null && stored.revalidatable() ? stored : null;
+
+            // Batches and profiles go through the scheduler as a whole rather than per cosmetic
+            CompletableFuture<T> fetch = BatchLookup.supports(provider) || ProfileLookup.supports(provider)
+                ? fetch(provider, url, playerId, username, timeout, priority, previous)
+                : FetchScheduler.submit(provider.name(), priority, timeout, () -> fetch(provider, url, playerId, username, (int) Utils.remainingMillis(deadline), priority, previous));
+            result.whenComplete((cosmetic, throwable) -> fetch.cancel(true));
+            fetch.whenComplete((cosmetic, throwable) -> result.complete(throwable == null ? cosmetic : null));
+        });
+        return result;
+    }
+
+    /**
+     * Look for a newer cosmetic than the one we are serving, at a low priority and within the refresh budget.
+     * The result only goes into the cache.
+     */
+    private void refreshInBackground(CosmeticConfig.CosmeticProviders provider, String url, UUID playerId, String username, CosmeticCache.Entry<T> stale, int timeout) {
+        refreshing.run(url, () -> {
+            if (!BackgroundRefresh.tryAcquire()) return CompletableFuture.completedFuture(null);
+
+            CosmeticCache.Entry<T> previous = stale.revalidatable() ? stale : null;
+            if (BatchLookup.supports(provider) || ProfileLookup.supports(provider)) {
+                return fetch(provider, url, playerId, username, timeout, FetchScheduler.Priority.BACKGROUND, previous);
+            }
+            // Nobody is waiting on the refresh, so it can wait its turn for as long as a whole lookup may take
+            return FetchScheduler.submit(provider.name(), FetchScheduler.Priority.BACKGROUND, ThirdPartyCosmetics.config().lookupTimeout,
+                () -> fetch(provider, url, playerId, username, timeout, FetchScheduler.Priority.BACKGROUND, previous));
+        });
+    }
+
+    private CompletableFuture<T> fetch(CosmeticConfig.CosmeticProviders provider, String url, UUID playerId, String username, int timeout, FetchScheduler.Priority priority, CosmeticCache.Entry<T> previous) {
+        // Providers that take several players at once get this one added to their next batch
+        CompletableFuture<Download> download = BatchLookup.supports(provider)
+            ? BatchLookup.of(provider).request(playerId, timeout, priority)
+            // Providers that serve the cape and ears together only get asked once for both
+            : ProfileLookup.supports(provider)
+            ? ProfileLookup.request(provider, playerId, username, profileTexture, timeout, priority, previous != null ? previous.validators() : null)
+            : CosmeticHttpClient.download(provider, url, timeout, previous != null ? previous.validators() : null);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        result.whenComplete((cosmetic, throwable) -> download.cancel(true));
+        download.whenCompleteAsync((response, throwable) -> {
+            // The provider couldn't be reached, don't remember that as a miss
+            if (throwable != null) {
+                result.complete(null);
+                return;
+            }
+
+            if (response.notModified() && previous != null) {
+                result.complete(refresh(provider, playerId, previous));
+                return;
+            }
+
+            result.complete(store(provider, playerId, decode(provider, url, response.body()), response.validators()));
+        }, CosmeticExecutor.get());
+        return result;
+    }
+
+    /**
+     * Decode a downloaded texture once, so using it later is only a copy
+     *
+     * @return The cosmetic, or null if there is none, it is invalid or it is the provider's placeholder
+     */
+    private T decode(CosmeticConfig.CosmeticProviders provider, String url, byte[] body) {
+        // The provider has nothing for the player
+        if (body == null) {
+            Metrics.increment(provider.name(), Metrics.Counter.MISS);
+            return null;
+        }
+
+        try {
+            long start = System.nanoTime();
+            ImageDecoder.Image image = ImageDecoder.decode(body, decodeWidth, decodeHeight, !DefaultTextures.of(provider).isEmpty());
+            Metrics.time(provider.name(), Metrics.Stage.DECODE, start);
+
+            // Placeholder the provider sends for players without the cosmetic
+            start = System.nanoTime();
+            boolean placeholder = DefaultTextures.of(provider).matches(image, body);
+            Metrics.time(provider.name(), Metrics.Stage.FINGERPRINT, start);
+            if (placeholder) {
+                Metrics.increment(provider.name(), Metrics.Counter.DEFAULT_TEXTURE);
+                return null;
+            }
+
+            Metrics.increment(provider.name(), Metrics.Counter.HIT);
+            return create(provider, url, image);
+        } catch (Exception e) {
+            Metrics.increment(provider.name(), Metrics.Counter.ERROR);
+            ThirdPartyCosmetics.log(logger -> logger.debug("Failed to read the " + name + " from " + provider.name() + ": " + e));
+            return null;
+        }
+    }
+
+    private T store(CosmeticConfig.CosmeticProviders provider, UUID playerId, T cosmetic, Validators validators) {
+        CacheBackend cacheBackend = ThirdPartyCosmetics.cacheBackend;
+        if (cosmetic == null) {
+            cache.put(provider.name(), playerId, null, ThirdPartyCosmetics.config().cacheMissTtl);
+            if (cacheBackend != null) cacheBackend.putMiss(provider.name(), playerId);
+            return null;
+        }
+
+        cache.put(provider.name(), playerId, cosmetic, ThirdPartyCosmetics.config().cacheTtl, validators);
+        if (cacheBackend != null) cacheBackend.put(provider.name(), playerId, imageData(cosmetic), width(cosmetic), height(cosmetic), validators);
+        return cosmetic;
+    }
+
+    /**
+     * Keep using a cached cosmetic the provider said hasn't changed
+     */
+    private T refresh(CosmeticConfig.CosmeticProviders provider, UUID playerId, CosmeticCache.Entry<T> previous) {
+        cache.put(provider.name(), playerId, previous.value(), ThirdPartyCosmetics.config().cacheTtl, previous.validators());
+
+        CacheBackend cacheBackend = ThirdPartyCosmetics.cacheBackend;
+        if (cacheBackend != null) cacheBackend.touch(provider.name(), playerId);
+
+        return previous.value();
+    }
+
+    /**
+     * Find the last lookup for a player, even if it has expired.
+     * Looks in memory first, then in the cache backend, copying what it finds there into memory.
+     *
+     * @param provider The provider the lookup was for
+     * @param url The URL the texture would be downloaded from
+     * @param playerId The players UUID
+     * @return The last lookup, or null if there is none
+     */
+    private CosmeticCache.Entry<T> load(CosmeticConfig.CosmeticProviders provider, String url, UUID playerId) {
+        CosmeticCache.Entry<T> cached = cache.peek(provider.name(), playerId);
+        if (cached != null) return cached;
+
+        CacheBackend cacheBackend = ThirdPartyCosmetics.cacheBackend;
+        if (cacheBackend == null) return null;
+
+        CacheBackend.Entry entry = cacheBackend.get(provider.name(), playerId);
+        if (entry == null) {
+            Metrics.increment(provider.name(), Metrics.Counter.DISK_CACHE_MISS);
+            return null;
+        }
+
+        int age = (int) ((System.currentTimeMillis() - entry.timestamp()) / 1000);
+        int ttl = (entry.miss() ? ThirdPartyCosmetics.config().cacheMissTtl : ThirdPartyCosmetics.config().cacheTtl) - age;
+        Metrics.increment(provider.name(), ttl > 0 ? Metrics.Counter.DISK_CACHE_HIT : Metrics.Counter.DISK_CACHE_MISS);
+
+        // Expired entries are kept too, they may still be served while they are refreshed
+        T cosmetic = entry.miss() ? null : restore(url, entry.bytes(), entry.width(), entry.height());
+        CosmeticCache.Entry<T> loaded = new CosmeticCache.Entry<>(cosmetic, CosmeticCache.expiry(ttl), entry.validators());
+        cache.put(provider.name(), playerId, loaded);
+        return loaded;
+    }
+}
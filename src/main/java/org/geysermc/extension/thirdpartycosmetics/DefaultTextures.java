@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+
+import javax.imageio.ImageIO;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recognises the placeholder textures a provider sends for players that don't have a cosmetic.
+ * <p>
+ * Textures are configured as the hex {@link Utils#fingerprint(byte[], int, int)} of their pixels. Entries starting
+ * with {@code png-md5:} are the older, much slower check of hashing the texture re-encoded as a PNG, which every
+ * texture from the provider goes through until the placeholder turns up. Once one of those is seen its fingerprint
+ * is used instead. The fingerprint is logged so the config can be updated, and kept in {@code default_textures.json}
+ * so the slow check isn't needed again after a reload or restart.
+ */
+public class DefaultTextures {
+    private static final String LEGACY_PREFIX = "png-md5:";
+    private static final Map<String, DefaultTextures> PROVIDERS = new ConcurrentHashMap<>();
+    private static final Map<UUID, Long> LEARNED = new ConcurrentHashMap<>();
+    private static volatile Path learnedFile;
+
+    private final CosmeticConfig.CosmeticProviders provider;
+    private final Set<Long> fingerprints = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> legacy = ConcurrentHashMap.newKeySet();
+
+    private DefaultTextures(CosmeticConfig.CosmeticProviders provider) {
+        this.provider = provider;
+        if (provider.defaultTextures() == null) return;
+
+        for (String texture : provider.defaultTextures()) {
+            try {
+                if (texture.startsWith(LEGACY_PREFIX)) {
+                    UUID legacyHash = UUID.fromString(texture.substring(LEGACY_PREFIX.length()));
+                    Long learned = LEARNED.get(legacyHash);
+                    if (learned != null) {
+                        fingerprints.add(learned);
+                    } else {
+                        legacy.add(legacyHash);
+                    }
+                } else {
+                    fingerprints.add(Long.parseUnsignedLong(texture, 16));
+                }
+            } catch (IllegalArgumentException e) {
+                ThirdPartyCosmetics.log(logger -> logger.warning("Ignoring invalid default texture " + texture + " for " + provider.name()));
+            }
+        }
+    }
+
+    /**
+     * Load the fingerprints of the {@code png-md5:} textures seen on previous runs
+     *
+     * @param directory The folder {@code default_textures.json} is kept in
+     */
+    public static void load(Path directory) {
+        learnedFile = directory.resolve("default_textures.json");
+        if (Files.exists(learnedFile)) {
+            try (Reader reader = Files.newBufferedReader(learnedFile)) {
+                JsonObject learned = new Gson().fromJson(reader, JsonObject.class);
+                if (learned != null) {
+                    for (Map.Entry<String, JsonElement> entry : learned.entrySet()) {
+                        LEARNED.put(UUID.fromString(entry.getKey().substring(LEGACY_PREFIX.length())), Long.parseUnsignedLong(entry.getValue().getAsString(), 16));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                ThirdPartyCosmetics.log(logger -> logger.warning("Failed to read " + learnedFile.getFileName() + ", the slower default texture check is used until the textures are seen again: " + e));
+            }
+        }
+
+        // Pick up what was loaded
+        PROVIDERS.clear();
+    }
+
+    /**
+     * Forget the providers a new config no longer has, the others keep what they have learnt
+     *
+     * @param config The config that is now in use
+     */
+    public static void retain(CosmeticConfig config) {
+        Map<String, CosmeticConfig.CosmeticProviders> providers = new HashMap<>();
+        for (CosmeticConfig.CosmeticProviders provider : config.capeUrls) {
+            providers.put(provider.key(), provider);
+        }
+        for (CosmeticConfig.CosmeticProviders provider : config.earsUrls) {
+            providers.put(provider.key(), provider);
+        }
+        PROVIDERS.values().removeIf(textures -> !textures.provider.equals(providers.get(textures.provider.key())));
+    }
+
+    /**
+     * Get the placeholder textures of a provider
+     *
+     * @param provider The provider
+     * @return The placeholder textures
+     */
+    public static DefaultTextures of(CosmeticConfig.CosmeticProviders provider) {
+        DefaultTextures textures = PROVIDERS.get(provider.key());
+        if (textures != null && textures.provider.equals(provider)) return textures;
+
+        // New, or its config changed on a reload
+        return PROVIDERS.compute(provider.key(), (key, existing) -> existing != null && existing.provider.equals(provider) ? existing : new DefaultTextures(provider));
+    }
+
+    /**
+     * @return If the provider has any placeholders, textures from providers without any don't need fingerprinting
+     */
+    public boolean isEmpty() {
+        return fingerprints.isEmpty() && legacy.isEmpty();
+    }
+
+    /**
+     * Check if a downloaded texture is one of the provider's placeholders
+     *
+     * @param image The decoded texture, fingerprinted at its original size
+     * @param png The texture as the provider sent it
+     * @return If the texture is a placeholder
+     */
+    public boolean matches(ImageDecoder.Image image, byte[] png) {
+        if (isEmpty() || image.fingerprint().isEmpty()) return false;
+
+        long fingerprint = image.fingerprint().getAsLong();
+        if (fingerprints.contains(fingerprint)) return true;
+        if (legacy.isEmpty()) return false;
+
+        UUID legacyHash;
+        try {
+            legacyHash = Utils.imageToUuid(ImageIO.read(new ByteArrayInputStream(png)));
+        } catch (Exception e) {
+            return false;
+        }
+        if (!legacy.remove(legacyHash)) return false;
+
+        fingerprints.add(fingerprint);
+        LEARNED.put(legacyHash, fingerprint);
+        saveLearned();
+
+        String hex = String.format("%016x", fingerprint);
+        ThirdPartyCosmetics.log(logger -> logger.info("Replace " + LEGACY_PREFIX + legacyHash + " with " + hex
+            + " in the default textures of " + provider.name() + " to skip re-encoding its textures"));
+        return true;
+    }
+
+    private static synchronized void saveLearned() {
+        Path file = learnedFile;
+        if (file == null) return;
+
+        JsonObject learned = new JsonObject();
+        LEARNED.forEach((legacyHash, fingerprint) -> learned.addProperty(LEGACY_PREFIX + legacyHash, String.format("%016x", fingerprint)));
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temporary, new Gson().toJson(learned), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            ThirdPartyCosmetics.log(logger -> logger.warning("Failed to save " + file.getFileName() + ": " + e));
+        }
+    }
+}
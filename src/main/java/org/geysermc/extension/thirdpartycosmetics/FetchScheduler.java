@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits how many provider fetches run at once, both overall and per provider, so a join storm
+ * can't take over the proxy.
+ * <p>
+ * Fetches start straight away while under the limits. Fetches over them wait in a bounded queue, players
+ * that are still joining first. When the queue is full, or a fetch has waited longer than its timeout, it
+ * completes with null and the player keeps their original skin and cape.
+ */
+public class FetchScheduler {
+    private static final Object LOCK = new Object();
+    private static final TreeSet<Task<?>> QUEUE = new TreeSet<>(Comparator.<Task<?>, Priority>comparing(task -> task.priority).thenComparingLong(task -> task.sequence));
+    private static final Map<String, Integer> RUNNING_PER_PROVIDER = new HashMap<>();
+    private static int running;
+    private static long sequence;
+
+    /**
+     * Run a fetch once the limits allow it
+     *
+     * @param provider The provider the fetch is for
+     * @param priority How urgently the fetch is needed
+     * @param timeout How long the fetch may wait to start, in milliseconds
+     * @param fetch Starts the fetch
+     * @return The result of the fetch, or null if it was shed
+     */
+    public static <T> CompletableFuture<T> submit(String provider, Priority priority, int timeout, Supplier<CompletableFuture<T>> fetch) {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        Task<T> task;
+        List<Task<?>> shed = new ArrayList<>();
+        boolean start = false;
+        synchronized (LOCK) {
+            long now = System.nanoTime();
+            task = new Task<>(provider, priority, now + TimeUnit.MILLISECONDS.toNanos(timeout), sequence++, fetch);
+
+            // Don't let fetches nobody can use any more hold places in the queue
+            QUEUE.removeIf(queued -> {
+                if (now - queued.deadline <= 0) return false;
+                shed.add(queued);
+                return true;
+            });
+
+            // Anything still queued is waiting on its own provider's limit, so a free slot can be used straight away
+            int providerRunning = RUNNING_PER_PROVIDER.getOrDefault(provider, 0);
+            if (running < config.maxConcurrentFetches && providerRunning < config.maxProviderFetches) {
+                running++;
+                RUNNING_PER_PROVIDER.put(provider, providerRunning + 1);
+                start = true;
+            } else if (QUEUE.size() < Math.max(0, config.fetchQueueSize)) {
+                QUEUE.add(task);
+            } else {
+                // Make room by dropping something less urgent, if there is anything
+                Task<?> last = QUEUE.isEmpty() ? null : QUEUE.last();
+                if (last == null || last.priority.compareTo(priority) <= 0) {
+                    shed.add(task);
+                } else {
+                    QUEUE.remove(last);
+                    shed.add(last);
+                    QUEUE.add(task);
+                }
+            }
+        }
+
+        for (Task<?> dropped : shed) {
+            Metrics.increment(dropped.provider, Metrics.Counter.SHED);
+            dropped.result.complete(null);
+        }
+
+        if (start) {
+            task.start();
+        } else {
+            // Give up our place if the caller no longer needs the result
+            task.result.whenComplete((value, throwable) -> {
+                if (task.result.isCancelled()) {
+                    synchronized (LOCK) {
+                        QUEUE.remove(task);
+                    }
+                }
+            });
+        }
+        return task.result;
+    }
+
+    /**
+     * @return The number of fetches waiting to start
+     */
+    public static int queued() {
+        synchronized (LOCK) {
+            return QUEUE.size();
+        }
+    }
+
+    /**
+     * @return The number of fetches running
+     */
+    public static int running() {
+        synchronized (LOCK) {
+            return running;
+        }
+    }
+
+    /**
+     * Start every queued fetch the limits allow, in priority order
+     */
+    private static void dispatch() {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        List<Task<?>> starting = new ArrayList<>();
+        List<Task<?>> expired = new ArrayList<>();
+
+        synchronized (LOCK) {
+            long now = System.nanoTime();
+            Iterator<Task<?>> iterator = QUEUE.iterator();
+            while (iterator.hasNext() && running < config.maxConcurrentFetches) {
+                Task<?> task = iterator.next();
+                if (now - task.deadline > 0) {
+                    iterator.remove();
+                    expired.add(task);
+                    continue;
+                }
+
+                int providerRunning = RUNNING_PER_PROVIDER.getOrDefault(task.provider, 0);
+                if (providerRunning >= config.maxProviderFetches) continue;
+
+                iterator.remove();
+                running++;
+                RUNNING_PER_PROVIDER.put(task.provider, providerRunning + 1);
+                starting.add(task);
+            }
+        }
+
+        for (Task<?> task : expired) {
+            Metrics.increment(task.provider, Metrics.Counter.SHED);
+            task.result.complete(null);
+        }
+        for (Task<?> task : starting) {
+            task.start();
+        }
+    }
+
+    private static void finished(Task<?> task) {
+        synchronized (LOCK) {
+            running--;
+            RUNNING_PER_PROVIDER.merge(task.provider, -1, (current, change) -> current + change == 0 ? null : current + change);
+        }
+        dispatch();
+    }
+
+    public enum Priority {
+        /**
+         * The player is still joining, these go first
+         */
+        JOINING,
+        NORMAL,
+        /**
+         * Refreshing a cache entry nobody is waiting for, these are the first to be shed
+         */
+        BACKGROUND
+    }
+
+    private static class Task<T> {
+        private final String provider;
+        private final Priority priority;
+        private final long deadline;
+        private final long sequence;
+        private final Supplier<CompletableFuture<T>> fetch;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(String provider, Priority priority, long deadline, long sequence, Supplier<CompletableFuture<T>> fetch) {
+            this.provider = provider;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.fetch = fetch;
+        }
+
+        private void start() {
+            CompletableFuture<T> source;
+            try {
+                source = fetch.get();
+            } catch (Throwable throwable) {
+                source = CompletableFuture.failedFuture(throwable);
+            }
+
+            CompletableFuture<T> started = source;
+            started.whenComplete((value, throwable) -> {
+                finished(this);
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+            result.whenComplete((value, throwable) -> started.cancel(true));
+        }
+    }
+}
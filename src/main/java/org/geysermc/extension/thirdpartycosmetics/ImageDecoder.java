@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.OptionalLong;
+
+/**
+ * Decodes downloaded images within the configured limits. The header is checked before anything is decoded,
+ * and images much larger than the size they end up at are subsampled while decoding, so an HD cape never
+ * exists at full size in memory.
+ * <p>
+ * Placeholder textures are recognised by the fingerprint of their pixels at full size, so images that need
+ * fingerprinting are decoded whole and subsampled afterwards, as long as they fit in the decoded size limit.
+ * <p>
+ * Providers are expected to serve PNGs, which have a reader kept per thread and their size read straight from
+ * the header. Anything else ImageIO can read gets a reader of its own, which is asked for the size first.
+ */
+public class ImageDecoder {
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int IHDR = 0x49484452;
+
+    // Decoders are reused by the thread, so are the pixels of images that are only kept until they are resized
+    private static final ThreadLocal<ImageReader> READER = ThreadLocal.withInitial(ImageDecoder::createReader);
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[0]);
+    private static final ThreadLocal<byte[]> ORIGINAL = ThreadLocal.withInitial(() -> new byte[0]);
+
+    /**
+     * Decode an image, subsampling it if it is more than twice the target size
+     *
+     * @param encoded The encoded image, as returned by the provider
+     * @param targetWidth The width the image will be resized to, or 0 if it is used as it is
+     * @param targetHeight The height the image will be resized to, or 0 if it is used as it is
+     * @param fingerprint If the fingerprint of the pixels at full size is needed
+     * @return The decoded image
+     * @throws IOException If the image isn't in a format ImageIO reads, is over the limits or can't be decoded
+     */
+    public static Image decode(byte[] encoded, int targetWidth, int targetHeight, boolean fingerprint) throws IOException {
+        if (encoded.length >= 8 && Arrays.equals(encoded, 0, 8, PNG_SIGNATURE, 0, 8)) {
+            ByteBuffer header = ByteBuffer.wrap(encoded);
+            if (encoded.length < 24 || header.getInt(12) != IHDR) {
+                throw new IOException("Broken PNG header");
+            }
+
+            ImageReader reader = READER.get();
+            try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(encoded))) {
+                reader.setInput(input, true, true);
+                return decode(reader, header.getInt(16), header.getInt(20), targetWidth, targetHeight, fingerprint);
+            } finally {
+                reader.reset();
+            }
+        }
+
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(encoded))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Not an image");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Only reads as far as the header, the limits are checked before any pixels are decoded
+                return decode(reader, reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight, fingerprint);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static Image decode(ImageReader reader, int width, int height, int targetWidth, int targetHeight, boolean fingerprint) throws IOException {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        if (width <= 0 || height <= 0 || width > config.maxImageDimension || height > config.maxImageDimension) {
+            throw new IOException("Image is " + width + "x" + height + ", over the " + config.maxImageDimension + " pixel limit");
+        }
+
+        // Keep twice the target size, so the resize still blends 2x2 pixels like it does at full size
+        int period = 1;
+        if (targetWidth > 0 && targetHeight > 0) {
+            int scale = 1;
+            while (targetWidth * scale < width || targetHeight * scale < height) {
+                scale *= 2;
+            }
+            period = Math.max(1, scale / 2);
+        }
+
+        long maxBytes = config.maxDecodedSize * 1024L;
+        int decodedWidth = (width + period - 1) / period;
+        int decodedHeight = (height + period - 1) / period;
+        if ((long) decodedWidth * decodedHeight * 4 > maxBytes) {
+            throw new IOException("Image is " + width + "x" + height + ", over the " + config.maxDecodedSize + " KB decoded limit");
+        }
+
+        // Placeholders are small, an image too large to decode whole can't be one and isn't fingerprinted
+        boolean original = fingerprint && (long) width * height * 4 <= maxBytes;
+        int offset = period / 2;
+
+        ImageReadParam param = reader.getDefaultReadParam();
+        if (period > 1 && !original) {
+            // Take the pixel in the middle of each block rather than its corner
+            param.setSourceSubsampling(period, period, offset, offset);
+        }
+        BufferedImage image = reader.read(0, param);
+
+        OptionalLong imageFingerprint = OptionalLong.empty();
+        byte[] originalData = null;
+        if (original) {
+            originalData = period > 1 ? scratch(ORIGINAL, width * height * 4) : new byte[width * height * 4];
+            Utils.bufferedImageToImageData(image, originalData);
+            imageFingerprint = OptionalLong.of(Utils.fingerprint(originalData, width, height));
+            if (period == 1) {
+                return new Image(originalData, width, height, imageFingerprint);
+            }
+        }
+
+        // The same pixels the decoder would have subsampled
+        int imageWidth = original ? (width - offset + period - 1) / period : image.getWidth();
+        int imageHeight = original ? (height - offset + period - 1) / period : image.getHeight();
+        int size = imageWidth * imageHeight * 4;
+
+        // Only images we are about to resize use the scratch buffer, anything else is kept as it is
+        byte[] imageData = targetWidth > 0 && (imageWidth != targetWidth || imageHeight != targetHeight) ? scratch(SCRATCH, size) : new byte[size];
+
+        if (original) {
+            for (int y = 0, index = 0; y < imageHeight; y++) {
+                int row = (y * period + offset) * width;
+                for (int x = 0; x < imageWidth; x++, index += 4) {
+                    System.arraycopy(originalData, (row + x * period + offset) * 4, imageData, index, 4);
+                }
+            }
+        } else {
+            Utils.bufferedImageToImageData(image, imageData);
+        }
+        return new Image(imageData, imageWidth, imageHeight, imageFingerprint);
+    }
+
+    private static byte[] scratch(ThreadLocal<byte[]> scratch, int size) {
+        byte[] buffer = scratch.get();
+        if (buffer.length != size) {
+            buffer = new byte[size];
+            scratch.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static ImageReader createReader() {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("png");
+        if (!readers.hasNext()) {
+            throw new IllegalStateException("No PNG decoder available");
+        }
+        return readers.next();
+    }
+
+    /**
+     * A decoded image. If it still needs resizing to the target size its pixels are in a scratch buffer,
+     * which the next decode on the same thread overwrites.
+     *
+     * @param imageData The image as RGBA bytes
+     * @param width The width of the decoded image
+     * @param height The height of the decoded image
+     * @param fingerprint The {@link Utils#fingerprint(byte[], int, int)} of the image at full size, if it was asked for and the image fit in the limit
+     */
+    public record Image(byte[] imageData, int width, int height, OptionalLong fingerprint) {
+    }
+}
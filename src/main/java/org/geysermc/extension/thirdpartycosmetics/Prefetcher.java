@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.capes.CapeFetcher;
+import org.geysermc.extension.thirdpartycosmetics.ears.EarsFetcher;
+import org.geysermc.extension.thirdpartycosmetics.ears.EarsTexture;
+import org.geysermc.geyser.api.skin.Cape;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Starts looking up a player's cosmetics as soon as their Java profile is known, so the skin can pick up
+ * the lookup already in progress rather than starting it. Finished lookups are dropped, by then the
+ * results are in the cache.
+ */
+public class Prefetcher {
+    private static final Map<UUID, Lookup> LOOKUPS = new ConcurrentHashMap<>();
+
+    /**
+     * Start looking up the cosmetics of a player
+     *
+     * @param playerId The players UUID
+     * @param username The players username
+     */
+    public static void start(UUID playerId, String username) {
+        if (LOOKUPS.containsKey(playerId)) return;
+
+        CompletableFuture<Cape> cape = ThirdPartyCosmetics.config().customCapes ? CapeFetcher.request(playerId, username, FetchScheduler.Priority.JOINING) : null;
+        // deadmau5 already has his ears, no need to look for them
+        CompletableFuture<EarsTexture> ears = ThirdPartyCosmetics.config().customEars && !"deadmau5".equals(username) ? EarsFetcher.request(playerId, username, FetchScheduler.Priority.JOINING) : null;
+        if (cape == null && ears == null) return;
+
+        Lookup lookup = new Lookup(cape, ears);
+        LOOKUPS.put(playerId, lookup);
+
+        CompletableFuture.allOf(cape != null ? cape : CompletableFuture.completedFuture(null), ears != null ? ears : CompletableFuture.completedFuture(null))
+            .whenComplete((ignored, throwable) -> LOOKUPS.remove(playerId, lookup));
+    }
+
+    /**
+     * Get the cape lookup for a player, joining the prefetch if there is one still running
+     *
+     * @param playerId The players UUID
+     * @param username The players username
+     * @return The cape, or null if no provider has one
+     */
+    public static CompletableFuture<Cape> cape(UUID playerId, String username) {
+        Lookup lookup = LOOKUPS.get(playerId);
+        if (lookup != null && lookup.cape() != null) {
+            return lookup.cape();
+        }
+        return CapeFetcher.request(playerId, username, FetchScheduler.Priority.NORMAL);
+    }
+
+    /**
+     * Get the ears lookup for a player, joining the prefetch if there is one still running
+     *
+     * @param playerId The players UUID
+     * @param username The players username
+     * @return The ears texture, or null if no provider has one
+     */
+    public static CompletableFuture<EarsTexture> ears(UUID playerId, String username) {
+        Lookup lookup = LOOKUPS.get(playerId);
+        if (lookup != null && lookup.ears() != null) {
+            return lookup.ears();
+        }
+        return EarsFetcher.request(playerId, username, FetchScheduler.Priority.NORMAL);
+    }
+
+    private record Lookup(CompletableFuture<Cape> cape, CompletableFuture<EarsTexture> ears) {
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Queries a priority ordered list of providers, with up to a given number in flight at once.
+ * <p>
+ * The result is the first hit in priority order, so a lower priority provider that answers first
+ * only wins once every provider ahead of it has come back empty. Once a winner is known any
+ * requests that can no longer win are cancelled and no further providers are started.
+ * Cancelling the result does the same for every request still in flight.
+ *
+ * @param <T> The cosmetic type being resolved
+ */
+public class ProviderRace<T> {
+    private final int providers;
+    private final IntFunction<CompletableFuture<T>> attempt;
+    private final Predicate<T> isHit;
+    private final T fallback;
+
+    private final CompletableFuture<T>[] attempts;
+    private final Object[] results;
+    private final boolean[] done;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    private int next = 0;
+    private int best;
+
+    @SuppressWarnings("unchecked")
+    private ProviderRace(int providers, IntFunction<CompletableFuture<T>> attempt, Predicate<T> isHit, T fallback) {
+        this.providers = providers;
+        this.attempt = attempt;
+        this.isHit = isHit;
+        this.fallback = fallback;
+
+        this.attempts = (CompletableFuture<T>[]) new CompletableFuture<?>[providers];
+        this.results = new Object[providers];
+        this.done = new boolean[providers];
+        this.best = providers;
+    }
+
+    /**
+     * Resolve a cosmetic from a list of providers
+     *
+     * @param providers The number of providers, in priority order
+     * @param parallelism The maximum number of providers to query at once
+     * @param attempt Starts the request to the provider at the given index
+     * @param isHit If a result means the provider had the cosmetic
+     * @param fallback The result if no provider has the cosmetic
+     * @param <T> The cosmetic type being resolved
+     * @return The result from the highest priority provider that had the cosmetic
+     */
+    public static <T> CompletableFuture<T> race(int providers, int parallelism, IntFunction<CompletableFuture<T>> attempt, Predicate<T> isHit, T fallback) {
+        if (providers == 0) {
+            return CompletableFuture.completedFuture(fallback);
+        }
+
+        ProviderRace<T> race = new ProviderRace<>(providers, attempt, isHit, fallback);
+        synchronized (race) {
+            for (int i = 0; i < Math.max(1, parallelism); i++) {
+                race.startNext();
+            }
+        }
+
+        // Nobody wants the cosmetic any more, stop asking for it
+        race.result.whenComplete((value, throwable) -> {
+            if (race.result.isCancelled()) {
+                race.abandon();
+            }
+        });
+        return race.result;
+    }
+
+    private void startNext() {
+        // Nothing after the best known hit can win
+        if (next >= providers || next >= best || result.isDone()) {
+            return;
+        }
+
+        int index = next++;
+        CompletableFuture<T> future = attempt.apply(index);
+        attempts[index] = future;
+        future.whenComplete((value, throwable) -> complete(index, throwable == null ? value : fallback));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized void complete(int index, T value) {
+        if (result.isDone()) {
+            return;
+        }
+
+        results[index] = value;
+        done[index] = true;
+
+        if (isHit.test(value)) {
+            if (index < best) {
+                best = index;
+                cancelFrom(index + 1);
+            }
+        } else {
+            startNext();
+        }
+
+        // Walk down the priority order, stopping at the first provider that hasn't answered yet
+        for (int i = 0; i < providers; i++) {
+            if (!done[i]) {
+                return;
+            }
+
+            if (isHit.test((T) results[i])) {
+                finish((T) results[i]);
+                return;
+            }
+        }
+
+        finish(fallback);
+    }
+
+    private synchronized void abandon() {
+        cancelFrom(0);
+    }
+
+    private void finish(T value) {
+        result.complete(value);
+        cancelFrom(0);
+    }
+
+    private void cancelFrom(int start) {
+        for (int i = start; i < providers; i++) {
+            if (attempts[i] != null && !done[i]) {
+                attempts[i].cancel(true);
+            }
+        }
+    }
+}
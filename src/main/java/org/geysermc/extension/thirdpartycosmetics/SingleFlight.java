@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates concurrent requests for the same key, so callers asking for something already in flight
+ * share its result instead of starting their own request.
+ * <p>
+ * Each caller gets its own future, cancelling it only detaches that caller. The shared request is
+ * cancelled once every caller has detached, and the key is forgotten as soon as the request finishes.
+ *
+ * @param <K> The request key
+ * @param <V> The result type
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Join the request in flight for a key, or start it if there is none
+     *
+     * @param key The request key
+     * @param task Starts the request
+     * @return A future for this caller that completes with the shared result
+     */
+    public CompletableFuture<V> run(K key, Supplier<CompletableFuture<V>> task) {
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> flight = flights.computeIfAbsent(key, k -> created);
+
+            CompletableFuture<V> caller = flight.join();
+            if (caller == null) {
+                // Finished or abandoned between the lookup and joining it
+                flights.remove(key, flight);
+                continue;
+            }
+
+            if (flight == created) {
+                CompletableFuture<V> source;
+                try {
+                    source = task.get();
+                } catch (Throwable throwable) {
+                    source = CompletableFuture.failedFuture(throwable);
+                }
+
+                flight.start(source);
+                source.whenComplete((value, throwable) -> {
+                    flights.remove(key, flight);
+                    flight.complete(value, throwable);
+                });
+            }
+            return caller;
+        }
+    }
+
+    /**
+     * @return The number of distinct requests currently in flight
+     */
+    public int size() {
+        return flights.size();
+    }
+
+    private static class Flight<V> {
+        private final List<CompletableFuture<V>> callers = new ArrayList<>();
+        private CompletableFuture<V> source;
+        private boolean closed;
+
+        private synchronized CompletableFuture<V> join() {
+            if (closed) {
+                return null;
+            }
+
+            CompletableFuture<V> caller = new CompletableFuture<>();
+            callers.add(caller);
+            caller.whenComplete((value, throwable) -> {
+                if (caller.isCancelled()) {
+                    leave(caller);
+                }
+            });
+            return caller;
+        }
+
+        private synchronized void start(CompletableFuture<V> source) {
+            this.source = source;
+            if (closed) {
+                source.cancel(true);
+            }
+        }
+
+        private synchronized void leave(CompletableFuture<V> caller) {
+            callers.remove(caller);
+            if (callers.isEmpty() && !closed) {
+                closed = true;
+                if (source != null) {
+                    source.cancel(true);
+                }
+            }
+        }
+
+        private void complete(V value, Throwable throwable) {
+            List<CompletableFuture<V>> waiting;
+            synchronized (this) {
+                closed = true;
+                waiting = new ArrayList<>(callers);
+            }
+
+            for (CompletableFuture<V> caller : waiting) {
+                if (throwable != null) {
+                    caller.completeExceptionally(throwable);
+                } else {
+                    caller.complete(value);
+                }
+            }
+        }
+    }
+}
@@ -26,23 +26,154 @@
 package org.geysermc.extension.thirdpartycosmetics;
 
 import org.geysermc.event.subscribe.Subscribe;
+import org.geysermc.extension.thirdpartycosmetics.cache.CacheBackend;
+import org.geysermc.extension.thirdpartycosmetics.cache.CacheBackends;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureStore;
 import org.geysermc.extension.thirdpartycosmetics.capes.CapeFetcher;
 import org.geysermc.extension.thirdpartycosmetics.config.ConfigLoader;
+import org.geysermc.extension.thirdpartycosmetics.config.ConfigWatcher;
 import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
 import org.geysermc.extension.thirdpartycosmetics.ears.EarsFetcher;
+import org.geysermc.extension.thirdpartycosmetics.http.CosmeticHttpClient;
+import org.geysermc.extension.thirdpartycosmetics.metrics.MetricsExporter;
+import org.geysermc.geyser.api.command.Command;
+import org.geysermc.geyser.api.command.CommandSource;
+import org.geysermc.geyser.api.event.bedrock.SessionJoinEvent;
 import org.geysermc.geyser.api.event.bedrock.SessionSkinApplyEvent;
+import org.geysermc.geyser.api.event.lifecycle.GeyserDefineCommandsEvent;
 import org.geysermc.geyser.api.event.lifecycle.GeyserPostInitializeEvent;
+import org.geysermc.geyser.api.event.lifecycle.GeyserShutdownEvent;
 import org.geysermc.geyser.api.extension.Extension;
+import org.geysermc.geyser.api.extension.ExtensionLogger;
 import org.geysermc.geyser.api.skin.Cape;
 import org.geysermc.geyser.api.skin.Skin;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
 public class ThirdPartyCosmetics implements Extension {
 
-    public static CosmeticConfig config;
+    public static CacheBackend cacheBackend;
+
+    private static volatile CosmeticConfig config;
+    private static ThirdPartyCosmetics instance;
+
+    private ConfigWatcher configWatcher;
+
+    /**
+     * Get the current config. It can be replaced at any time when the file changes, so read it
+     * once and keep using that copy for the rest of an operation.
+     *
+     * @return The current config
+     */
+    public static CosmeticConfig config() {
+        return config;
+    }
+
+    /**
+     * Switch to a new config, lookups that have already started carry on with the old one
+     *
+     * @param newConfig The config to use, which must not be changed afterwards
+     */
+    public static void applyConfig(CosmeticConfig newConfig) {
+        config = newConfig;
+        DefaultTextures.retain(newConfig);
+
+        CapeFetcher.CACHE.maxEntries(newConfig.cacheMaxEntries);
+        EarsFetcher.CACHE.maxEntries(newConfig.cacheMaxEntries);
+        TextureStore.OFF_HEAP.budget(newConfig.offHeapCacheSize * 1024L * 1024L);
+    }
+
+    /**
+     * Log a message from code that doesn't have access to the extension instance
+     *
+     * @param message Writes the message to the logger
+     */
+    public static void log(Consumer<ExtensionLogger> message) {
+        ThirdPartyCosmetics extension = instance;
+        if (extension != null) {
+            message.accept(extension.logger());
+        }
+    }
 
     @Subscribe
     public void onGeyserInitialise(GeyserPostInitializeEvent event) {
-        config = ConfigLoader.loadConfig(this.dataFolder());
+        instance = this;
+        DefaultTextures.load(this.dataFolder());
+        CosmeticConfig config = ConfigLoader.loadConfig(this.dataFolder());
+        applyConfig(config);
+        CosmeticExecutor.start(config.fetchThreads);
+        MetricsExporter.start(this.dataFolder(), config.metricsInterval);
+
+        try {
+            configWatcher = ConfigWatcher.start(this.dataFolder(), this::reloadConfig);
+        } catch (IOException e) {
+            this.logger().warning("Failed to watch the config for changes, restart to apply them: " + e.getMessage());
+        }
+
+        if (config.diskCache) {
+            try {
+                cacheBackend = CacheBackends.open(this.dataFolder(), config);
+            } catch (IOException e) {
+                this.logger().error("Failed to open the " + config.cacheBackend + " texture cache, textures will not be kept between restarts", e);
+            }
+        }
+    }
+
+    @Subscribe
+    public void onDefineCommands(GeyserDefineCommandsEvent event) {
+        event.register(Command.builder(this)
+            .source(CommandSource.class)
+            .name("metrics")
+            .description("Shows how each cosmetic provider has been responding")
+            .permission("thirdpartycosmetics.command.metrics")
+            .executor((source, command, args) -> {
+                List<String> summary = MetricsExporter.summary();
+                if (summary.isEmpty()) {
+                    source.sendMessage("No cosmetic lookups have been made yet");
+                    return;
+                }
+                summary.forEach(source::sendMessage);
+            })
+            .build());
+    }
+
+    private void reloadConfig(CosmeticConfig newConfig) {
+        applyConfig(newConfig);
+
+        // Reconnect with the new timeouts and connection limits
+        CosmeticHttpClient.reset();
+        this.logger().info("Reloaded the config, fetch_threads and the cache backend settings apply after a restart");
+    }
+
+    @Subscribe
+    public void onGeyserShutdown(GeyserShutdownEvent event) {
+        if (configWatcher != null) {
+            configWatcher.close();
+            configWatcher = null;
+        }
+
+        CosmeticExecutor.shutdown();
+        MetricsExporter.stop(this.dataFolder());
+
+        if (cacheBackend != null) {
+            cacheBackend.close();
+            cacheBackend = null;
+        }
+    }
+
+    @Subscribe
+    public void onSessionJoin(SessionJoinEvent event) {
+        UUID javaUuid = event.connection().javaUuid();
+
+        // Get a head start on the players own cosmetics while the rest of the login happens
+        if (config().prefetchOnJoin && javaUuid != null && javaUuid.version() == 4) {
+            Prefetcher.start(javaUuid, event.connection().javaUsername());
+        }
     }
 
     @Subscribe
@@ -50,20 +181,42 @@ public class ThirdPartyCosmetics implements Extension {
         // event.bedrock() wont run for linked players
         // This ensures the player is an online player
         if (event.uuid().version() == 4) {
-            if(config.customCapes) {
-                handleCapes(event);
+            CosmeticConfig config = config();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.lookupTimeout);
+
+            // Start both lookups before waiting on either so they run side by side
+            CompletableFuture<Cape> cape = config.customCapes ? requestCape(event) : null;
+            CompletableFuture<Skin> ears = config.customEars ? requestEars(event) : null;
+
+            if (cape != null) {
+                handleCapes(event, cape, deadline);
             }
 
-            if(config.customEars) {
-                handleEars(event);
+            if (ears != null) {
+                handleEars(event, ears, deadline);
             }
         }
     }
 
-    private void handleCapes(SessionSkinApplyEvent event) {
-        Cape cape = Utils.getOrDefault(CapeFetcher.request(
-            event.skinData().cape(), event.uuid(), event.username()
-        ), event.skinData().cape(), ThirdPartyCosmetics.config.capeUrls.size() * 3);
+    private CompletableFuture<Cape> requestCape(SessionSkinApplyEvent event) {
+        Cape currentCape = event.skinData().cape();
+        return Prefetcher.cape(event.uuid(), event.username()).thenApply(cape -> cape == null ? currentCape : cape);
+    }
+
+    private CompletableFuture<Skin> requestEars(SessionSkinApplyEvent event) {
+        Skin currentSkin = event.skinData().skin();
+
+        // deadmau5 already has his ears, no need to look for them
+        if ("deadmau5".equals(event.username())) {
+            return CompletableFuture.completedFuture(currentSkin);
+        }
+
+        // Get the ears texture for the player
+        return Prefetcher.ears(event.uuid(), event.username()).thenApply(ears -> ears == null ? currentSkin : EarsFetcher.applyEars(currentSkin, ears));
+    }
+
+    private void handleCapes(SessionSkinApplyEvent event, CompletableFuture<Cape> request, long deadline) {
+        Cape cape = Utils.getOrDefault(request, event.skinData().cape(), Utils.remainingMillis(deadline));
 
         if (!cape.failed() && cape != event.skinData().cape()) {
             this.logger().debug("Applied cape texture for " + event.username() + " (" + event.uuid() + ")");
@@ -71,17 +224,14 @@ public class ThirdPartyCosmetics implements Extension {
         }
     }
 
-    private void handleEars(SessionSkinApplyEvent event) {
+    private void handleEars(SessionSkinApplyEvent event, CompletableFuture<Skin> request, long deadline) {
         // Let deadmau5 have his ears
         if ("deadmau5".equals(event.username())) {
             event.geometry(EarsFetcher.geometry(event.slim()));
             return;
         }
 
-        // Get the ears texture for the player
-        Skin skin = Utils.getOrDefault(EarsFetcher.request(
-            event.skinData().skin(), event.uuid(), event.username()
-        ), event.skinData().skin(), ThirdPartyCosmetics.config.earsUrls.size() * 3);
+        Skin skin = Utils.getOrDefault(request, event.skinData().skin(), Utils.remainingMillis(deadline));
 
         // Does the skin have an ears texture
         if (skin != event.skinData().skin()) {
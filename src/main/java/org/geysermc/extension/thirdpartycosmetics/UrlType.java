@@ -25,8 +25,50 @@
 
 package org.geysermc.extension.thirdpartycosmetics;
 
+/**
+ * The placeholders a provider URL can contain
+ */
 public enum UrlType {
-    USERNAME,
-    UUID,
-    UUID_DASHED
+    USERNAME("username"),
+    UUID("uuid"),
+    UUID_DASHED("full_uuid");
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String placeholder;
+
+    UrlType(String placeholder) {
+        this.placeholder = placeholder;
+    }
+
+    /**
+     * @return The name used between braces in a URL
+     */
+    public String placeholder() {
+        return placeholder;
+    }
+
+    /**
+     * Write the value of this placeholder for a player
+     *
+     * @param builder Where to write the value
+     * @param uuid The players UUID
+     * @param username The players username
+     */
+    public void append(StringBuilder builder, java.util.UUID uuid, String username) {
+        switch (this) {
+            case USERNAME -> builder.append(username);
+            case UUID -> {
+                appendHex(builder, uuid.getMostSignificantBits());
+                appendHex(builder, uuid.getLeastSignificantBits());
+            }
+            case UUID_DASHED -> builder.append(uuid);
+        }
+    }
+
+    private static void appendHex(StringBuilder builder, long value) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            builder.append(HEX[(int) (value >>> shift) & 0xF]);
+        }
+    }
 }
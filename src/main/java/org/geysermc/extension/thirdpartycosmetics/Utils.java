@@ -25,27 +25,34 @@
 
 package org.geysermc.extension.thirdpartycosmetics;
 
-import org.geysermc.geyser.api.GeyserApi;
-
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.net.URISyntaxException;
-import java.net.URL;
+import java.nio.ByteOrder;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.ProviderNotFoundException;
 import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 public class Utils {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final long FINGERPRINT_SEED = 0x9E3779B97F4A7C15L;
+
     public static byte[] readAllBytes(String name) {
         byte[] bytes = new byte[0];
         try (FileSystem fileSystem = FileSystems.newFileSystem(new File(ThirdPartyCosmetics.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toPath(), Collections.emptyMap())) {
@@ -55,51 +62,80 @@ public class Utils {
                 input.read(bytes);
 
             }
-        } catch (IOException | URISyntaxException ignored) { }
+        } catch (IOException | URISyntaxException | ProviderNotFoundException ignored) { } // not running from a jar, e.g. benchmarks
 
         return bytes;
     }
 
-    public static <T> T getOrDefault(CompletableFuture<T> future, T defaultValue, int timeoutInSeconds) {
+    public static <T> T getOrDefault(CompletableFuture<T> future, T defaultValue, long timeoutInMillis) {
         try {
-            return future.get(timeoutInSeconds, TimeUnit.SECONDS);
+            return future.get(Math.max(0, timeoutInMillis), TimeUnit.MILLISECONDS);
         } catch (Exception ignored) {}
         return defaultValue;
     }
 
-    private static BufferedImage scale(BufferedImage bufferedImage, int newWidth, int newHeight) {
-        BufferedImage resized = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2 = resized.createGraphics();
-        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2.drawImage(bufferedImage, 0, 0, newWidth, newHeight, null);
-        g2.dispose();
-        bufferedImage.flush();
-        return resized;
+    /**
+     * Get the time left until a deadline
+     *
+     * @param deadline The deadline as given by {@link System#nanoTime()}
+     * @return The remaining time in milliseconds, or 0 if it has passed
+     */
+    public static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
     }
 
     /**
-     * Resize a BufferedImage that is expected to be a cape
+     * Resize an image that is expected to be a cape down to 64x32.
+     * The image is padded to the nearest power of two multiple of 64x32, then each output pixel
+     * blends the 2x2 pixels at the centre of its block, the same samples a bilinear downscale uses.
      *
-     * @param original The BufferedImage to resize
-     * @return The converted BufferedImage
+     * @param imageData The image as RGBA bytes
+     * @param imageWidth The width of the image
+     * @param imageHeight The height of the image
+     * @return The cape as 64x32 RGBA bytes
      */
-    public static BufferedImage resizeCape(BufferedImage original) {
-        int imageWidth = 64;
-        int imageHeight = 32;
-
-        int srcWidth = original.getWidth();
-        int srcHeight = original.getHeight();
-        while(imageWidth < srcWidth || imageHeight < srcHeight) {
-            imageWidth *= 2;
-            imageHeight *= 2;
+    public static byte[] resizeCape(byte[] imageData, int imageWidth, int imageHeight) {
+        int scale = 1;
+        while (64 * scale < imageWidth || 32 * scale < imageHeight) {
+            scale *= 2;
         }
 
-        final BufferedImage imgNew = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics g = imgNew.getGraphics();
-        g.drawImage(original, 0, 0, null);
-        g.dispose();
+        int samples = Math.min(scale, 2);
+        int offset = (scale - samples) / 2;
+
+        byte[] cape = new byte[64 * 32 * 4];
+        for (int y = 0; y < 32; y++) {
+            int top = y * scale + offset;
+            int bottom = Math.min(top + samples, imageHeight);
+
+            for (int x = 0; x < 64; x++) {
+                int left = x * scale + offset;
+                int right = Math.min(left + samples, imageWidth);
 
-        return scale(imgNew, 64, 32);
+                // Weight the colours by alpha so transparent pixels don't darken the edges
+                int red = 0, green = 0, blue = 0, alpha = 0;
+                for (int sourceY = top; sourceY < bottom; sourceY++) {
+                    for (int sourceX = left; sourceX < right; sourceX++) {
+                        int index = (sourceY * imageWidth + sourceX) * 4;
+                        int pixelAlpha = imageData[index + 3] & 0xFF;
+                        red += (imageData[index] & 0xFF) * pixelAlpha;
+                        green += (imageData[index + 1] & 0xFF) * pixelAlpha;
+                        blue += (imageData[index + 2] & 0xFF) * pixelAlpha;
+                        alpha += pixelAlpha;
+                    }
+                }
+                if (alpha == 0) continue;
+
+                int index = (y * 64 + x) * 4;
+                cape[index] = (byte) ((red + alpha / 2) / alpha);
+                cape[index + 1] = (byte) ((green + alpha / 2) / alpha);
+                cape[index + 2] = (byte) ((blue + alpha / 2) / alpha);
+                // Samples past the edge of the image are transparent padding
+                cape[index + 3] = (byte) ((alpha * 2 + samples * samples) / (samples * samples * 2));
+            }
+        }
+
+        return cape;
     }
 
     /**
@@ -112,12 +148,11 @@ public class Utils {
      */
     public static BufferedImage imageDataToBufferedImage(byte[] imageData, int imageWidth, int imageHeight) {
         BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-        int index = 0;
-        for (int y = 0; y < imageHeight; y++) {
-            for (int x = 0; x < imageWidth; x++) {
-                image.setRGB(x, y, getRGBA(index, imageData));
-                index += 4;
-            }
+
+        // Write straight into the backing array, TYPE_INT_ARGB is always a single packed int per pixel
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int i = 0, index = 0; i < pixels.length; i++, index += 4) {
+            pixels[i] = getRGBA(index, imageData);
         }
 
         return image;
@@ -142,17 +177,130 @@ public class Utils {
      * @return The converted byte[]
      */
     public static byte[] bufferedImageToImageData(BufferedImage image) {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(image.getWidth() * 4 + image.getHeight() * 4);
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int rgba = image.getRGB(x, y);
-                outputStream.write((rgba >> 16) & 0xFF);
-                outputStream.write((rgba >> 8) & 0xFF);
-                outputStream.write(rgba & 0xFF);
-                outputStream.write((rgba >> 24) & 0xFF);
+        byte[] data = new byte[image.getWidth() * image.getHeight() * 4];
+        bufferedImageToImageData(image, data);
+        return data;
+    }
+
+    /**
+     * Convert a BufferedImage into an existing byte[]
+     *
+     * @param image The BufferedImage to convert
+     * @param data The array to write the RGBA bytes to, exactly the size of the image
+     */
+    public static void bufferedImageToImageData(BufferedImage image, byte[] data) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        WritableRaster raster = image.getRaster();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0 && raster.getSampleModelTranslateY() == 0;
+
+        // Images we create ourselves
+        if (untranslated && image.getType() == BufferedImage.TYPE_INT_ARGB
+            && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel && sampleModel.getScanlineStride() == width) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            writeARGB(buffer.getData(), buffer.getOffset(), data);
+            return;
+        }
+
+        // Images ImageIO decoded from a PNG with an alpha channel
+        if (untranslated && image.getType() == BufferedImage.TYPE_4BYTE_ABGR
+            && raster.getSampleModel() instanceof ComponentSampleModel sampleModel && sampleModel.getScanlineStride() == width * 4) {
+            DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+            byte[] abgr = buffer.getData();
+            for (int i = 0, offset = buffer.getOffset(); i < data.length; i += 4, offset += 4) {
+                data[i] = abgr[offset + 3];
+                data[i + 1] = abgr[offset + 2];
+                data[i + 2] = abgr[offset + 1];
+                data[i + 3] = abgr[offset];
             }
+            return;
+        }
+
+        // Anything else, let AWT convert it to ARGB in one call
+        writeARGB(image.getRGB(0, 0, width, height, null, 0, width), 0, data);
+    }
+
+    private static void writeARGB(int[] pixels, int offset, byte[] data) {
+        for (int i = 0; i < data.length; i += 4) {
+            int argb = pixels[offset++];
+            data[i] = (byte) (argb >> 16);
+            data[i + 1] = (byte) (argb >> 8);
+            data[i + 2] = (byte) argb;
+            data[i + 3] = (byte) (argb >>> 24);
         }
-        return outputStream.toByteArray();
+    }
+
+    /**
+     * Draw one image over another, blending them by alpha the same way {@link java.awt.AlphaComposite#SRC_OVER} does.
+     * Anything that falls outside the target is clipped.
+     *
+     * @param target The RGBA bytes to draw onto, changed in place
+     * @param targetWidth The width of the target
+     * @param targetHeight The height of the target
+     * @param source The RGBA bytes to draw
+     * @param sourceWidth The width of the source
+     * @param sourceHeight The height of the source
+     * @param x Where to draw the left edge of the source
+     * @param y Where to draw the top edge of the source
+     */
+    public static void drawOver(byte[] target, int targetWidth, int targetHeight, byte[] source, int sourceWidth, int sourceHeight, int x, int y) {
+        int width = Math.min(sourceWidth, targetWidth - x);
+        int height = Math.min(sourceHeight, targetHeight - y);
+
+        for (int row = 0; row < height; row++) {
+            int from = row * sourceWidth * 4;
+            int to = ((y + row) * targetWidth + x) * 4;
+
+            for (int end = from + width * 4; from < end; from += 4, to += 4) {
+                int sourceAlpha = source[from + 3] & 0xFF;
+                if (sourceAlpha == 0) continue;
+
+                if (sourceAlpha == 255) {
+                    System.arraycopy(source, from, target, to, 4);
+                    continue;
+                }
+
+                // Destination weight is its alpha scaled by what the source lets through, out of 255 * 255
+                int targetWeight = (target[to + 3] & 0xFF) * (255 - sourceAlpha);
+                int sourceWeight = sourceAlpha * 255;
+                int alpha = sourceWeight + targetWeight;
+                for (int channel = 0; channel < 3; channel++) {
+                    int blended = (source[from + channel] & 0xFF) * sourceWeight + (target[to + channel] & 0xFF) * targetWeight;
+                    target[to + channel] = (byte) ((blended + alpha / 2) / alpha);
+                }
+                target[to + 3] = (byte) ((alpha + 127) / 255);
+            }
+        }
+    }
+
+    /**
+     * Fingerprint the pixels of an image, cheap enough to run on every download.
+     * This is not a cryptographic hash, it is only used to recognise known textures.
+     *
+     * @param imageData The image as RGBA bytes
+     * @param imageWidth The width of the image
+     * @param imageHeight The height of the image
+     * @return The fingerprint
+     */
+    public static long fingerprint(byte[] imageData, int imageWidth, int imageHeight) {
+        long hash = FINGERPRINT_SEED ^ ((long) imageWidth << 32 | imageHeight);
+
+        int index = 0;
+        for (; index + 8 <= imageData.length; index += 8) {
+            hash = Long.rotateLeft(hash ^ mix((long) LONGS.get(imageData, index)), 27) * FINGERPRINT_SEED + 0x632BE59BD9B4E019L;
+        }
+        for (; index < imageData.length; index++) {
+            hash = (hash ^ (imageData[index] & 0xFF)) * 0x100000001B3L;
+        }
+
+        return mix(hash ^ imageData.length);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
     }
 
     /**
@@ -169,26 +317,4 @@ public class Utils {
         // Uses MD5 under the hood (UUID v3)
         return UUID.nameUUIDFromBytes(imageBytes);
     }
-
-    /**
-     * Gets an image from a URL
-     * @param downloadUrl The url to download
-     * @return The buffered image
-     */
-    public static BufferedImage downloadImage(String downloadUrl) {
-        try {
-            URL url = new URL(downloadUrl);
-            HttpURLConnection httpurlconnection = (HttpURLConnection) url.openConnection();
-            httpurlconnection.addRequestProperty("User-Agent", "GeyserMC/" + GeyserApi.api().geyserApiVersion());
-            httpurlconnection.setDoInput(true);
-            httpurlconnection.setDoOutput(false);
-            httpurlconnection.connect();
-
-            if (httpurlconnection.getResponseCode() / 100 == 2) {
-                return ImageIO.read(httpurlconnection.getInputStream());
-            }
-        } catch (IOException ignored) {}
-
-        return null;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Where processed textures are kept beyond the in-memory cache, keyed by provider and player.
+ * Entries are the RGBA texture ready to use, or a record that the provider had nothing, so whatever
+ * one proxy looked up is free for every other proxy using the same backend.
+ * <p>
+ * Backends are picked by the {@code cache_backend} config option from the ones registered in {@link CacheBackends}.
+ * Implementations must be safe to call from several threads, and should not throw on failure,
+ * losing an entry only costs another lookup.
+ */
+public interface CacheBackend {
+
+    /**
+     * Look up a stored texture
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @return The stored entry, or null if there is none
+     */
+    Entry get(String provider, UUID playerId);
+
+    /**
+     * Store a processed texture
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @param rgba The RGBA texture data
+     * @param width The texture width
+     * @param height The texture height
+     * @param validators The validators the provider sent with the texture
+     */
+    void put(String provider, UUID playerId, byte[] rgba, int width, int height, Validators validators);
+
+    /**
+     * Remember that a provider has no texture for a player
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     */
+    void putMiss(String provider, UUID playerId);
+
+    /**
+     * Mark a stored texture as fresh again after the provider confirmed it hasn't changed
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     */
+    void touch(String provider, UUID playerId);
+
+    /**
+     * Release anything the backend holds open
+     */
+    void close();
+
+    /**
+     * A stored lookup
+     *
+     * @param texture A read only view of the RGBA texture, or null if the provider had nothing
+     * @param width The texture width
+     * @param height The texture height
+     * @param timestamp When the entry was stored or last revalidated, in epoch milliseconds
+     * @param validators The validators the provider sent with the texture
+     */
+    record Entry(ByteBuffer texture, int width, int height, long timestamp, Validators validators) {
+        public boolean miss() {
+            return texture == null;
+        }
+
+        /**
+         * Copy the texture out into a new array
+         *
+         * @return The RGBA texture data
+         */
+        public byte[] bytes() {
+            byte[] bytes = new byte[texture.remaining()];
+            texture.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The cache backends that can be chosen in the config. Other backends, such as a network key-value store,
+ * can be registered before the extension finishes starting up.
+ */
+public class CacheBackends {
+    private static final Map<String, Factory> FACTORIES = new ConcurrentHashMap<>();
+
+    static {
+        // A DiskCache in this proxy's own data folder
+        Factory disk = (dataFolder, config) -> DiskCache.open(dataFolder.resolve("cache"), config.diskCacheMaxEntries, config.diskCacheMaxSize * 1024L * 1024L);
+        register("disk", disk);
+        // Deprecated, the old name for disk kept so existing configs still load
+        register("local", disk);
+
+        // Kept in memory only, for when the data folder can't be written to
+        register("memory", (dataFolder, config) -> new MemoryCache(config.diskCacheMaxEntries, config.diskCacheMaxSize * 1024L * 1024L));
+
+        // A directory every proxy can see, such as an NFS share or a bind mount
+        register("shared", (dataFolder, config) -> {
+            if (config.sharedCacheDirectory == null || config.sharedCacheDirectory.isBlank()) {
+                throw new IOException("shared_cache_directory isn't set");
+            }
+            return SharedDirectoryCache.open(dataFolder.resolve(config.sharedCacheDirectory));
+        });
+    }
+
+    /**
+     * Make a backend available to the {@code cache_backend} config option
+     *
+     * @param name The name used in the config
+     * @param factory Opens the backend
+     */
+    public static void register(String name, Factory factory) {
+        FACTORIES.put(name.toLowerCase(Locale.ROOT), factory);
+    }
+
+    /**
+     * Open the backend the config asks for
+     *
+     * @param dataFolder The extension data folder
+     * @param config The config
+     * @return The opened backend
+     * @throws IOException If the backend is unknown or couldn't be opened
+     */
+    public static CacheBackend open(Path dataFolder, CosmeticConfig config) throws IOException {
+        Factory factory = FACTORIES.get(config.cacheBackend.toLowerCase(Locale.ROOT));
+        if (factory == null) {
+            throw new IOException("Unknown cache backend " + config.cacheBackend + ", expected one of " + FACTORIES.keySet());
+        }
+        return factory.open(dataFolder, config);
+    }
+
+    @FunctionalInterface
+    public interface Factory {
+        CacheBackend open(Path dataFolder, CosmeticConfig config) throws IOException;
+    }
+}
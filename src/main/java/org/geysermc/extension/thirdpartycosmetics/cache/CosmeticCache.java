@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A size bounded, least recently used cache of cosmetic lookups keyed by provider and player.
+ * A {@code null} value records that the provider has nothing for the player.
+ * <p>
+ * Caches given a {@link TextureCodec} keep the pixels of their cosmetics in the {@link TextureStore} while it is
+ * enabled, and only copy them back when an entry is read and nobody else is still using the cosmetic.
+ *
+ * @param <T> The ready to use cosmetic type
+ */
+public class CosmeticCache<T> {
+    private final LinkedHashMap<Key, Stored<T>> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Stored<T>> eldest) {
+            if (size() <= maxEntries) return false;
+
+            release(eldest.getValue());
+            return true;
+        }
+    };
+
+    private final TextureStore store;
+    private final TextureCodec<T> codec;
+    private int maxEntries;
+
+    public CosmeticCache(int maxEntries) {
+        this(maxEntries, null, null);
+    }
+
+    /**
+     * @param maxEntries The maximum number of entries
+     * @param store Where to keep the pixels of cached cosmetics
+     * @param codec Takes the pixels out of a cosmetic and puts them back
+     */
+    public CosmeticCache(int maxEntries, TextureStore store, TextureCodec<T> codec) {
+        this.maxEntries = maxEntries;
+        this.store = store;
+        this.codec = codec;
+    }
+
+    /**
+     * Get a cached lookup if it has not expired yet
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @return The cached entry, or null if there is none
+     */
+    public synchronized Entry<T> get(String provider, UUID playerId) {
+        Entry<T> entry = peek(provider, playerId);
+        if (entry == null || entry.expired()) {
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Get a cached lookup even if it has expired, so it can be revalidated
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @return The cached entry, or null if there is none
+     */
+    public synchronized Entry<T> peek(String provider, UUID playerId) {
+        Key key = new Key(provider, playerId);
+        Stored<T> stored = entries.get(key);
+        if (stored == null) return null;
+        if (stored.handle() == null) return stored.entry();
+
+        // Hand out the copy that is already on the heap if anyone is still using it
+        T value = stored.live().get();
+        if (value == null) {
+            byte[] imageData = store.get(stored.handle());
+            if (imageData == null) {
+                // The store evicted the pixels to stay within its budget
+                entries.remove(key);
+                return null;
+            }
+
+            value = codec.restore(stored.entry().value(), imageData);
+            entries.put(key, new Stored<>(stored.entry(), stored.handle(), new WeakReference<>(value)));
+        }
+        return new Entry<>(value, stored.entry().expiresAt(), stored.entry().validators());
+    }
+
+    /**
+     * Store the result of a lookup
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @param value The cosmetic, or null if the provider has none for the player
+     * @param ttlSeconds How long the result stays valid for
+     */
+    public void put(String provider, UUID playerId, T value, int ttlSeconds) {
+        put(provider, playerId, value, ttlSeconds, Validators.NONE);
+    }
+
+    /**
+     * Store the result of a lookup along with the validators to revalidate it with once it expires
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @param value The cosmetic, or null if the provider has none for the player
+     * @param ttlSeconds How long the result stays valid for
+     * @param validators The validators the provider sent
+     */
+    public synchronized void put(String provider, UUID playerId, T value, int ttlSeconds, Validators validators) {
+        if (ttlSeconds <= 0 || maxEntries <= 0) {
+            return;
+        }
+
+        store(new Key(provider, playerId), new Entry<>(value, expiry(ttlSeconds), validators));
+    }
+
+    /**
+     * Store an entry as it is, even if it has already expired, so it can still be served while stale
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @param entry The entry
+     */
+    public synchronized void put(String provider, UUID playerId, Entry<T> entry) {
+        if (maxEntries <= 0) {
+            return;
+        }
+
+        store(new Key(provider, playerId), entry);
+    }
+
+    private void store(Key key, Entry<T> entry) {
+        Stored<T> stored = new Stored<>(entry, null, null);
+        if (codec != null && !entry.miss() && store.enabled()) {
+            byte[] imageData = codec.imageData(entry.value());
+            TextureStore.Handle handle = imageData.length == 0 ? null : store.put(imageData);
+            if (handle != null) {
+                stored = new Stored<>(new Entry<>(codec.strip(entry.value()), entry.expiresAt(), entry.validators()), handle, new WeakReference<>(entry.value()));
+            }
+        }
+
+        Stored<T> replaced = entries.put(key, stored);
+        if (replaced != null) release(replaced);
+    }
+
+    private void release(Stored<T> stored) {
+        if (stored.handle() != null) store.release(stored.handle());
+    }
+
+    /**
+     * Get the expiry time for an entry stored now
+     *
+     * @param ttlSeconds How long the entry stays valid for
+     * @return The expiry time as given by {@link System#nanoTime()}
+     */
+    public static long expiry(int ttlSeconds) {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    /**
+     * Change the maximum number of entries, evicting the least recently used ones if needed
+     *
+     * @param maxEntries The new maximum size
+     */
+    public synchronized void maxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+
+        var iterator = entries.entrySet().iterator();
+        while (entries.size() > Math.max(0, maxEntries) && iterator.hasNext()) {
+            release(iterator.next().getValue());
+            iterator.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.values().forEach(this::release);
+        entries.clear();
+    }
+
+    private record Key(String provider, UUID playerId) {
+    }
+
+    /**
+     * An entry as it is kept, the entry holds the cosmetic without its pixels when they are in the store
+     */
+    private record Stored<T>(Entry<T> entry, TextureStore.Handle handle, Reference<T> live) {
+    }
+
+    /**
+     * Moves the pixels of a cosmetic in and out of the {@link TextureStore}
+     *
+     * @param <T> The cosmetic type
+     */
+    public interface TextureCodec<T> {
+        /**
+         * @param value The cosmetic
+         * @return The pixels to keep in the store
+         */
+        byte[] imageData(T value);
+
+        /**
+         * @param value The cosmetic
+         * @return The cosmetic without its pixels, kept on the heap while they are in the store
+         */
+        T strip(T value);
+
+        /**
+         * @param stripped The cosmetic from {@link #strip(Object)}
+         * @param imageData The pixels read back from the store
+         * @return The whole cosmetic
+         */
+        T restore(T stripped, byte[] imageData);
+    }
+
+    public record Entry<T>(T value, long expiresAt, Validators validators) {
+        /**
+         * @return If the provider had no cosmetic for the player
+         */
+        public boolean miss() {
+            return value == null;
+        }
+
+        /**
+         * @return If the entry can be revalidated instead of downloaded again
+         */
+        public boolean revalidatable() {
+            return !miss() && validators != null && validators.present();
+        }
+
+        public boolean expired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+
+        /**
+         * Misses are never served stale, a player who has just got a cosmetic would keep going without it
+         *
+         * @param staleSeconds How long after expiring an entry may still be used
+         * @return If the entry has expired but may still be used while it is refreshed
+         */
+        public boolean stale(int staleSeconds) {
+            long age = System.nanoTime() - expiresAt;
+            return !miss() && age > 0 && age <= TimeUnit.SECONDS.toNanos(staleSeconds);
+        }
+    }
+}
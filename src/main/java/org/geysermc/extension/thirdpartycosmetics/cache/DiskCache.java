@@ -0,0 +1,574 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A persistent cache of processed RGBA textures kept in the extension data folder.
+ * <p>
+ * Textures are stored under their content hash in {@code textures/}, and a fixed size, memory mapped
+ * open addressing table in {@code index.bin} maps each provider and player to a texture hash.
+ * Opening the cache only maps the index, the texture directory is never scanned.
+ */
+public class DiskCache implements CacheBackend {
+    private static final int MAGIC = 0x54504349; // TPCI
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 128;
+
+    // Header layout
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SLOTS = 8;
+    private static final int HEADER_USED = 12;
+    private static final int HEADER_TOMBSTONES = 16;
+    private static final int HEADER_TOTAL_BYTES = 24;
+
+    // Slot layout
+    private static final int SLOT_PROVIDER = 0;
+    private static final int SLOT_UUID_MOST = 8;
+    private static final int SLOT_UUID_LEAST = 16;
+    private static final int SLOT_TIMESTAMP = 24;
+    private static final int SLOT_SIZE_BYTES = 32;
+    private static final int SLOT_WIDTH = 36;
+    private static final int SLOT_HEIGHT = 38;
+    private static final int SLOT_HASH = 40;
+    private static final int SLOT_FLAGS = 63;
+    private static final int SLOT_LAST_MODIFIED = 64;
+    private static final int SLOT_ETAG_LENGTH = 72;
+    private static final int SLOT_ETAG = 73;
+
+    private static final int HASH_LENGTH = 20;
+    private static final int MAX_ETAG_LENGTH = SLOT_SIZE - SLOT_ETAG;
+
+    private static final byte EMPTY = 0;
+    private static final byte PRESENT = 1;
+    private static final byte MISS = 2;
+    private static final byte TOMBSTONE = 3;
+
+    private final Path textures;
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final int slots;
+    private final int maxEntries;
+    private final long maxBytes;
+    // How many slots use each texture, and writes in progress, so files are deleted once nothing uses them
+    private final Map<ByteBuffer, Integer> references = new HashMap<>();
+
+    private DiskCache(Path textures, FileChannel channel, MappedByteBuffer index, int slots, int maxEntries, long maxBytes) {
+        this.textures = textures;
+        this.channel = channel;
+        this.index = index;
+        this.slots = slots;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+
+        for (int slot = 0; slot < slots; slot++) {
+            int offset = offset(slot);
+            if (index.get(offset + SLOT_FLAGS) == PRESENT) {
+                references.merge(ByteBuffer.wrap(readHash(offset)), 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Open the cache in the given directory, creating it if needed
+     *
+     * @param directory The directory to store the cache in
+     * @param maxEntries The maximum number of players to keep track of
+     * @param maxBytes The maximum total size of the stored textures
+     * @return The opened cache
+     * @throws IOException If the index could not be created or mapped
+     */
+    public static DiskCache open(Path directory, int maxEntries, long maxBytes) throws IOException {
+        Path textures = directory.resolve("textures");
+        Files.createDirectories(textures);
+
+        // At least twice as many slots as entries, so probe sequences stay short
+        maxEntries = Math.max(1, Math.min(maxEntries, 1 << 20));
+        int slots = Integer.highestOneBit(Math.max(16, maxEntries) * 2 - 1) << 1;
+        long size = HEADER_SIZE + (long) slots * SLOT_SIZE;
+
+        FileChannel channel = FileChannel.open(directory.resolve("index.bin"),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean valid = channel.size() == size;
+        MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (!valid || index.getInt(HEADER_MAGIC) != MAGIC || index.getInt(HEADER_VERSION) != VERSION || index.getInt(HEADER_SLOTS) != slots) {
+            // The index is from an older layout or size, the textures it pointed to can't be found any more
+            clearDirectory(textures);
+            for (int i = 0; i < size; i += 8) {
+                index.putLong(i, 0);
+            }
+            index.putInt(HEADER_MAGIC, MAGIC);
+            index.putInt(HEADER_VERSION, VERSION);
+            index.putInt(HEADER_SLOTS, slots);
+            index.force();
+        }
+
+        return new DiskCache(textures, channel, index, slots, maxEntries, maxBytes);
+    }
+
+    /**
+     * Look up a stored texture
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @return The stored entry, or null if there is none
+     */
+    @Override
+    public Entry get(String provider, UUID playerId) {
+        long providerHash = providerHash(provider);
+        byte[] hash;
+        int size;
+        Entry entry;
+        synchronized (this) {
+            int slot = find(providerHash, playerId);
+            if (slot < 0) {
+                return null;
+            }
+
+            int offset = offset(slot);
+            long timestamp = index.getLong(offset + SLOT_TIMESTAMP);
+            if (index.get(offset + SLOT_FLAGS) == MISS) {
+                return new Entry(null, 0, 0, timestamp, Validators.NONE);
+            }
+
+            hash = readHash(offset);
+            size = index.getInt(offset + SLOT_SIZE_BYTES);
+            entry = new Entry(null, index.getShort(offset + SLOT_WIDTH), index.getShort(offset + SLOT_HEIGHT), timestamp, readValidators(offset));
+        }
+
+        // Read outside the lock so lookups don't wait on each other's disk reads
+        byte[] texture = readTexture(hash, size);
+        if (texture == null) {
+            synchronized (this) {
+                // The texture file has gone missing, forget about it unless the entry has been replaced meanwhile
+                int slot = find(providerHash, playerId);
+                if (slot >= 0 && index.get(offset(slot) + SLOT_FLAGS) == PRESENT && Arrays.equals(readHash(offset(slot)), hash)) {
+                    remove(slot);
+                }
+            }
+            return null;
+        }
+
+        return new Entry(ByteBuffer.wrap(texture).asReadOnlyBuffer(), entry.width(), entry.height(), entry.timestamp(), entry.validators());
+    }
+
+    /**
+     * Store a processed texture
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     * @param rgba The RGBA texture data
+     * @param width The texture width
+     * @param height The texture height
+     * @param validators The validators the provider sent with the texture
+     */
+    @Override
+    public void put(String provider, UUID playerId, byte[] rgba, int width, int height, Validators validators) {
+        byte[] hash = hash(rgba, width, height);
+
+        // Hold a reference while the file is written outside the lock, so it can't be deleted under us
+        synchronized (this) {
+            acquire(hash, rgba.length);
+        }
+
+        if (!writeTexture(hash, rgba)) {
+            synchronized (this) {
+                release(hash, rgba.length);
+            }
+            return;
+        }
+
+        synchronized (this) {
+            Claim claim = claim(providerHash(provider), playerId);
+            int offset = claim.offset();
+            index.putLong(offset + SLOT_TIMESTAMP, System.currentTimeMillis());
+            index.putInt(offset + SLOT_SIZE_BYTES, rgba.length);
+            index.putShort(offset + SLOT_WIDTH, (short) width);
+            index.putShort(offset + SLOT_HEIGHT, (short) height);
+            index.put(offset + SLOT_HASH, hash);
+            writeValidators(offset, validators);
+
+            // Mark the slot as usable last, so a half written slot is never read. It takes over the reference held above
+            index.put(offset + SLOT_FLAGS, PRESENT);
+            if (claim.previous() != null) release(claim.previous(), claim.previousSize());
+
+            evictIfNeeded();
+        }
+    }
+
+    /**
+     * Remember that a provider has no texture for a player
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     */
+    @Override
+    public synchronized void putMiss(String provider, UUID playerId) {
+        Claim claim = claim(providerHash(provider), playerId);
+        int offset = claim.offset();
+        index.putLong(offset + SLOT_TIMESTAMP, System.currentTimeMillis());
+        index.putInt(offset + SLOT_SIZE_BYTES, 0);
+        writeValidators(offset, Validators.NONE);
+        index.put(offset + SLOT_FLAGS, MISS);
+        if (claim.previous() != null) release(claim.previous(), claim.previousSize());
+
+        evictIfNeeded();
+    }
+
+    /**
+     * Mark a stored texture as fresh again after the provider confirmed it hasn't changed
+     *
+     * @param provider The provider name
+     * @param playerId The players UUID
+     */
+    @Override
+    public synchronized void touch(String provider, UUID playerId) {
+        int slot = find(providerHash(provider), playerId);
+        if (slot >= 0) {
+            index.putLong(offset(slot) + SLOT_TIMESTAMP, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Flush the index to disk and release it
+     */
+    @Override
+    public synchronized void close() {
+        index.force();
+        try {
+            channel.close();
+        } catch (IOException ignored) { }
+    }
+
+    /**
+     * Find the slot holding a key
+     *
+     * @return The slot index, or -1 if the key is not stored
+     */
+    private int find(long provider, UUID playerId) {
+        int mask = slots - 1;
+        for (int i = 0, slot = start(provider, playerId); i < slots; i++, slot = (slot + 1) & mask) {
+            int offset = offset(slot);
+            byte flags = index.get(offset + SLOT_FLAGS);
+            if (flags == EMPTY) {
+                return -1;
+            }
+
+            if (flags != TOMBSTONE && matches(offset, provider, playerId)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the slot for a key to write a new entry into, reusing its current slot or claiming a free one.
+     * <p>
+     * A reused slot reads as a tombstone until it is written, so a crash part way through leaves the entry
+     * unknown rather than a false miss or a mix of the old and new entry. Its previous texture must be
+     * released once the new entry is in place.
+     */
+    private Claim claim(long provider, UUID playerId) {
+        int existing = find(provider, playerId);
+        if (existing >= 0) {
+            int offset = offset(existing);
+            byte[] previous = index.get(offset + SLOT_FLAGS) == PRESENT ? readHash(offset) : null;
+            index.put(offset + SLOT_FLAGS, TOMBSTONE);
+            return new Claim(offset, previous, index.getInt(offset + SLOT_SIZE_BYTES));
+        }
+
+        int mask = slots - 1;
+        int slot = start(provider, playerId);
+        while (true) {
+            byte flags = index.get(offset(slot) + SLOT_FLAGS);
+            if (flags == EMPTY || flags == TOMBSTONE) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int offset = offset(slot);
+        if (index.get(offset + SLOT_FLAGS) == TOMBSTONE) {
+            index.putInt(HEADER_TOMBSTONES, index.getInt(HEADER_TOMBSTONES) - 1);
+        }
+        index.putInt(HEADER_USED, index.getInt(HEADER_USED) + 1);
+
+        index.putLong(offset + SLOT_PROVIDER, provider);
+        index.putLong(offset + SLOT_UUID_MOST, playerId.getMostSignificantBits());
+        index.putLong(offset + SLOT_UUID_LEAST, playerId.getLeastSignificantBits());
+        return new Claim(offset, null, 0);
+    }
+
+    private void remove(int slot) {
+        int offset = offset(slot);
+        byte flags = index.get(offset + SLOT_FLAGS);
+        markRemoved(offset);
+
+        if (flags == PRESENT) {
+            release(readHash(offset), index.getInt(offset + SLOT_SIZE_BYTES));
+        }
+    }
+
+    private void markRemoved(int offset) {
+        index.put(offset + SLOT_FLAGS, TOMBSTONE);
+        index.putInt(HEADER_USED, index.getInt(HEADER_USED) - 1);
+        index.putInt(HEADER_TOMBSTONES, index.getInt(HEADER_TOMBSTONES) + 1);
+    }
+
+    /**
+     * Drop the oldest entries once there are too many or the stored textures are over budget,
+     * and clear out tombstones once they fill up the table
+     */
+    private void evictIfNeeded() {
+        boolean overEntries = index.getInt(HEADER_USED) > maxEntries;
+        boolean overBytes = index.getLong(HEADER_TOTAL_BYTES) > maxBytes;
+        if (overEntries || overBytes) {
+            evict(overEntries, overBytes);
+        }
+
+        if (index.getInt(HEADER_USED) + index.getInt(HEADER_TOMBSTONES) > slots * 3 / 4) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Drop the oldest entries until back under the limits that were exceeded, with some room to spare
+     * so the next writes don't each scan the table again
+     */
+    private void evict(boolean overEntries, boolean overBytes) {
+        List<Integer> occupied = new ArrayList<>(index.getInt(HEADER_USED));
+        for (int slot = 0; slot < slots; slot++) {
+            byte flags = index.get(offset(slot) + SLOT_FLAGS);
+            if (flags == PRESENT || flags == MISS) {
+                occupied.add(slot);
+            }
+        }
+        occupied.sort(Comparator.comparingLong(slot -> index.getLong(offset(slot) + SLOT_TIMESTAMP)));
+
+        long targetBytes = overBytes ? maxBytes * 9 / 10 : Long.MAX_VALUE;
+        int targetUsed = overEntries ? maxEntries * 9 / 10 : Integer.MAX_VALUE;
+        for (int slot : occupied) {
+            if (index.getLong(HEADER_TOTAL_BYTES) <= targetBytes && index.getInt(HEADER_USED) <= targetUsed) {
+                break;
+            }
+
+            remove(slot);
+        }
+    }
+
+    /**
+     * Reinsert all live slots so tombstones stop lengthening probe sequences
+     */
+    private void rebuild() {
+        List<byte[]> live = new ArrayList<>(index.getInt(HEADER_USED));
+        for (int slot = 0; slot < slots; slot++) {
+            int offset = offset(slot);
+            byte flags = index.get(offset + SLOT_FLAGS);
+            if (flags == PRESENT || flags == MISS) {
+                byte[] data = new byte[SLOT_SIZE];
+                index.get(offset, data);
+                live.add(data);
+            }
+            if (flags != EMPTY) {
+                index.put(offset + SLOT_FLAGS, EMPTY);
+            }
+        }
+
+        int mask = slots - 1;
+        for (byte[] data : live) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            UUID playerId = new UUID(buffer.getLong(SLOT_UUID_MOST), buffer.getLong(SLOT_UUID_LEAST));
+            int slot = start(buffer.getLong(SLOT_PROVIDER), playerId);
+            while (index.get(offset(slot) + SLOT_FLAGS) != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            index.put(offset(slot), data);
+        }
+
+        index.putInt(HEADER_USED, live.size());
+        index.putInt(HEADER_TOMBSTONES, 0);
+    }
+
+    /**
+     * Take a reference to a texture, counting its size the first time it is used
+     */
+    private void acquire(byte[] hash, int size) {
+        if (references.merge(ByteBuffer.wrap(hash), 1, Integer::sum) == 1) {
+            index.putLong(HEADER_TOTAL_BYTES, index.getLong(HEADER_TOTAL_BYTES) + size);
+        }
+    }
+
+    /**
+     * Drop a reference to a texture, deleting the file once nothing refers to it any more
+     */
+    private void release(byte[] hash, int size) {
+        Integer remaining = references.computeIfPresent(ByteBuffer.wrap(hash), (ignored, count) -> count > 1 ? count - 1 : null);
+        if (remaining != null) return;
+
+        index.putLong(HEADER_TOTAL_BYTES, Math.max(0, index.getLong(HEADER_TOTAL_BYTES) - size));
+        try {
+            Files.deleteIfExists(texturePath(hash));
+        } catch (IOException ignored) { }
+    }
+
+    private boolean writeTexture(byte[] hash, byte[] rgba) {
+        Path file = texturePath(hash);
+        if (Files.exists(file)) return true;
+
+        try {
+            // Write to a temporary file first so a crash never leaves a partial texture behind
+            Path temp = Files.createTempFile(textures, "texture", ".tmp");
+            Files.write(temp, rgba);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private byte[] readTexture(byte[] hash, int size) {
+        try {
+            byte[] texture = Files.readAllBytes(texturePath(hash));
+            return texture.length == size ? texture : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private boolean matches(int offset, long provider, UUID playerId) {
+        return index.getLong(offset + SLOT_PROVIDER) == provider
+            && index.getLong(offset + SLOT_UUID_MOST) == playerId.getMostSignificantBits()
+            && index.getLong(offset + SLOT_UUID_LEAST) == playerId.getLeastSignificantBits();
+    }
+
+    private byte[] readHash(int offset) {
+        byte[] hash = new byte[HASH_LENGTH];
+        index.get(offset + SLOT_HASH, hash);
+        return hash;
+    }
+
+    private Validators readValidators(int offset) {
+        int etagLength = index.get(offset + SLOT_ETAG_LENGTH) & 0xFF;
+        String etag = null;
+        if (etagLength > 0) {
+            byte[] bytes = new byte[etagLength];
+            index.get(offset + SLOT_ETAG, bytes);
+            etag = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long lastModified = index.getLong(offset + SLOT_LAST_MODIFIED);
+        return etag == null && lastModified == 0 ? Validators.NONE : new Validators(etag, lastModified);
+    }
+
+    private void writeValidators(int offset, Validators validators) {
+        byte[] etag = validators.etag() == null ? new byte[0] : validators.etag().getBytes(StandardCharsets.UTF_8);
+        if (etag.length > MAX_ETAG_LENGTH) {
+            // An ETag can't be shortened, fall back to Last-Modified only
+            etag = new byte[0];
+        }
+
+        index.putLong(offset + SLOT_LAST_MODIFIED, validators.lastModified());
+        index.put(offset + SLOT_ETAG_LENGTH, (byte) etag.length);
+        index.put(offset + SLOT_ETAG, etag);
+    }
+
+    private Path texturePath(byte[] hash) {
+        return textures.resolve(HexFormat.of().formatHex(hash) + ".rgba");
+    }
+
+    private int start(long provider, UUID playerId) {
+        long hash = provider * 31 + playerId.hashCode();
+        return (int) (hash ^ (hash >>> 32)) & (slots - 1);
+    }
+
+    /**
+     * A slot being written
+     *
+     * @param offset The offset of the slot in the index
+     * @param previous The texture the slot held before, or null if it held none
+     * @param previousSize The size of that texture
+     */
+    private record Claim(int offset, byte[] previous, int previousSize) {
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long providerHash(String provider) {
+        // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : provider.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static byte[] hash(byte[] rgba, int width, int height) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(ByteBuffer.allocate(8).putInt(width).putInt(height).array());
+            return digest.digest(rgba);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void clearDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
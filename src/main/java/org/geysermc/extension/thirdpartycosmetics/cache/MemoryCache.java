@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.UUID;
+
+/**
+ * A cache backend kept in this proxy's memory, for setups where the data folder can't be written to.
+ * Nothing survives a restart or is shared with other proxies, it only keeps the textures the cosmetic caches
+ * have evicted, within the same entry and size limits as the disk cache.
+ */
+public class MemoryCache implements CacheBackend {
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxEntries;
+    private final long maxBytes;
+    private long bytes;
+
+    /**
+     * @param maxEntries The maximum number of textures and misses kept
+     * @param maxBytes The maximum total size of the textures kept
+     */
+    public MemoryCache(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    @Override
+    public synchronized Entry get(String provider, UUID playerId) {
+        return entries.get(new Key(provider, playerId));
+    }
+
+    @Override
+    public void put(String provider, UUID playerId, byte[] rgba, int width, int height, Validators validators) {
+        // A texture that takes the whole budget would only push everything else out
+        if (rgba.length > maxBytes) return;
+
+        ByteBuffer texture = ByteBuffer.wrap(rgba.clone()).asReadOnlyBuffer();
+        store(new Key(provider, playerId), new Entry(texture, width, height, System.currentTimeMillis(), validators));
+    }
+
+    @Override
+    public void putMiss(String provider, UUID playerId) {
+        store(new Key(provider, playerId), new Entry(null, 0, 0, System.currentTimeMillis(), Validators.NONE));
+    }
+
+    @Override
+    public synchronized void touch(String provider, UUID playerId) {
+        Key key = new Key(provider, playerId);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entries.put(key, new Entry(entry.texture(), entry.width(), entry.height(), System.currentTimeMillis(), entry.validators()));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return The number of textures and misses kept
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The total size of the textures kept
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    private synchronized void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        bytes += size(entry) - size(previous);
+
+        // Drop the least recently used entries until both limits are met again
+        Iterator<Entry> oldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && oldest.hasNext()) {
+            bytes -= size(oldest.next());
+            oldest.remove();
+        }
+    }
+
+    private static long size(Entry entry) {
+        return entry == null || entry.miss() ? 0 : entry.texture().capacity();
+    }
+
+    private record Key(String provider, UUID playerId) {
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * A cache in a directory shared by several proxies, such as an NFS share or a bind mount.
+ * <p>
+ * Textures are stored under their content hash in {@code textures/}, and every provider and player has a small
+ * entry file in {@code entries/} pointing at one. Every file is written to a temporary file and renamed into place,
+ * so a reader only ever sees a whole file and never has to take a lock. Writes from different proxies race
+ * harmlessly, the last one wins. Nothing is evicted, old files can be pruned by modification time from outside.
+ */
+public class SharedDirectoryCache implements CacheBackend {
+    private static final int MAGIC = 0x54504353; // TPCS
+    private static final byte VERSION = 1;
+
+    private static final byte PRESENT = 1;
+    private static final byte MISS = 2;
+
+    // Where the timestamp is in an entry, after the magic, version and flags
+    private static final int TIMESTAMP = 6;
+
+    private final Path textures;
+    private final Path entries;
+
+    private SharedDirectoryCache(Path textures, Path entries) {
+        this.textures = textures;
+        this.entries = entries;
+    }
+
+    /**
+     * Open the cache in the given directory, creating it if needed
+     *
+     * @param directory The shared directory
+     * @return The opened cache
+     * @throws IOException If the directory can't be created
+     */
+    public static SharedDirectoryCache open(Path directory) throws IOException {
+        Path textures = directory.resolve("textures");
+        Path entries = directory.resolve("entries");
+        Files.createDirectories(textures);
+        Files.createDirectories(entries);
+        return new SharedDirectoryCache(textures, entries);
+    }
+
+    @Override
+    public Entry get(String provider, UUID playerId) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(entryPath(provider, playerId))))) {
+            if (input.readInt() != MAGIC || input.readByte() != VERSION) return null;
+
+            byte flags = input.readByte();
+            long timestamp = input.readLong();
+            if (flags == MISS) {
+                return new Entry(null, 0, 0, timestamp, Validators.NONE);
+            }
+
+            int width = input.readUnsignedShort();
+            int height = input.readUnsignedShort();
+            long lastModified = input.readLong();
+            String etag = input.readUTF();
+            byte[] hash = input.readNBytes(input.readUnsignedByte());
+
+            // The texture may have been pruned while its entry was left behind
+            byte[] texture = Files.readAllBytes(texturePath(hash));
+            if (texture.length != width * height * 4) return null;
+
+            Validators validators = etag.isEmpty() && lastModified == 0 ? Validators.NONE : new Validators(etag.isEmpty() ? null : etag, lastModified);
+            return new Entry(ByteBuffer.wrap(texture).asReadOnlyBuffer(), width, height, timestamp, validators);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // Corrupt or written by a newer version, it gets replaced by the next lookup
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String provider, UUID playerId, byte[] rgba, int width, int height, Validators validators) {
+        byte[] hash = DiskCache.hash(rgba, width, height);
+        try {
+            // Another proxy may already have stored the same texture
+            Path texture = texturePath(hash);
+            if (!Files.exists(texture)) {
+                write(texture, rgba);
+            }
+            write(entryPath(provider, playerId), entry(PRESENT, System.currentTimeMillis(), width, height, validators, hash));
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public void putMiss(String provider, UUID playerId) {
+        try {
+            write(entryPath(provider, playerId), entry(MISS, System.currentTimeMillis(), 0, 0, Validators.NONE, null));
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public void touch(String provider, UUID playerId) {
+        Path path = entryPath(provider, playerId);
+        try {
+            ByteBuffer entry = ByteBuffer.wrap(Files.readAllBytes(path));
+            if (entry.limit() < TIMESTAMP + 8 || entry.getInt(0) != MAGIC || entry.get(4) != VERSION || entry.get(5) != PRESENT) return;
+
+            // Rewrite the entry rather than changing it in place, so readers never see it half written
+            entry.putLong(TIMESTAMP, System.currentTimeMillis());
+            write(path, entry.array());
+        } catch (IOException ignored) { }
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open between calls
+    }
+
+    private static byte[] entry(byte flags, long timestamp, int width, int height, Validators validators, byte[] hash) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeByte(flags);
+            output.writeLong(timestamp);
+            if (flags == PRESENT) {
+                output.writeShort(width);
+                output.writeShort(height);
+                output.writeLong(validators.lastModified());
+                output.writeUTF(validators.etag() == null ? "" : validators.etag());
+                output.writeByte(hash.length);
+                output.write(hash);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void write(Path file, byte[] data) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        // A temporary file in the same directory, so the rename never crosses file systems
+        Path temp = Files.createTempFile(file.getParent(), ".write", ".tmp");
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path entryPath(String provider, UUID playerId) {
+        String id = playerId.toString();
+        // Spread the players over subdirectories, some file systems slow down with huge directories
+        return entries.resolve(sanitize(provider)).resolve(id.substring(0, 2)).resolve(id);
+    }
+
+    private Path texturePath(byte[] hash) {
+        return textures.resolve(HexFormat.of().formatHex(hash) + ".rgba");
+    }
+
+    private static String sanitize(String provider) {
+        StringBuilder name = new StringBuilder(provider.length());
+        for (int i = 0; i < provider.length(); i++) {
+            char c = provider.charAt(i);
+            name.append(c < 128 && (Character.isLetterOrDigit(c) || c == '-' || c == '_') ? c : '_');
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.Utils;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Shares a single instance of each distinct texture, so players with the same artwork share its bytes on the heap.
+ * Textures are keyed by their {@link Utils#fingerprint(byte[], int, int)} and only held weakly, once no cache
+ * entry or session uses a texture it is forgotten.
+ *
+ * @param <T> The texture type
+ */
+public class TextureInterner<T> {
+    private final Map<Long, Ref<T>> textures = new ConcurrentHashMap<>();
+    private final ReferenceQueue<T> cleared = new ReferenceQueue<>();
+    private final Function<T, byte[]> imageData;
+
+    /**
+     * @param imageData Gets the RGBA bytes of a texture
+     */
+    public TextureInterner(Function<T, byte[]> imageData) {
+        this.imageData = imageData;
+    }
+
+    /**
+     * Get the shared instance of a texture, creating it if these pixels haven't been seen before
+     *
+     * @param imageData The texture as RGBA bytes
+     * @param width The width of the texture
+     * @param height The height of the texture
+     * @param create Creates the texture from its pixels and an id derived from them
+     * @return The shared texture
+     */
+    public T intern(byte[] imageData, int width, int height, TextureFactory<T> create) {
+        expunge();
+
+        long fingerprint = Utils.fingerprint(imageData, width, height);
+        Object[] result = new Object[1];
+        textures.compute(fingerprint, (key, ref) -> {
+            T existing = ref == null ? null : ref.get();
+            if (existing == null) {
+                T created = create.create(imageData, String.format("%016x", fingerprint));
+                result[0] = created;
+                return new Ref<>(fingerprint, created, cleared);
+            }
+
+            if (Arrays.equals(this.imageData.apply(existing), imageData)) {
+                result[0] = existing;
+            } else {
+                // Different pixels with the same fingerprint, keep them apart with an id from a stronger hash
+                result[0] = create.create(imageData, digest(imageData, width, height));
+            }
+            return ref;
+        });
+
+        @SuppressWarnings("unchecked")
+        T texture = (T) result[0];
+        return texture;
+    }
+
+    /**
+     * @return The number of distinct textures currently shared
+     */
+    public int size() {
+        expunge();
+        return textures.size();
+    }
+
+    private void expunge() {
+        Object polled;
+        while ((polled = cleared.poll()) != null) {
+            Ref<?> ref = (Ref<?>) polled;
+            textures.remove(ref.fingerprint, ref);
+        }
+    }
+
+    private static String digest(byte[] imageData, int width, int height) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(ByteBuffer.allocate(8).putInt(width).putInt(height).array());
+            return HexFormat.of().formatHex(digest.digest(imageData));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface TextureFactory<T> {
+        T create(byte[] imageData, String id);
+    }
+
+    private static class Ref<T> extends WeakReference<T> {
+        private final long fingerprint;
+
+        private Ref(long fingerprint, T texture, ReferenceQueue<T> queue) {
+            super(texture, queue);
+            this.fingerprint = fingerprint;
+        }
+    }
+}
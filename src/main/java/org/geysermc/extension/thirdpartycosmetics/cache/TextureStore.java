@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.Utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps texture pixels outside the Java heap, so a large cache doesn't make every old generation collection slower.
+ * <p>
+ * Memory is taken from the OS in 1 MB direct buffers as it is needed, up to the budget, and handed out in 4 KB pages.
+ * A texture is spread over as many pages as it needs, which don't have to be next to each other, so freed pages
+ * can always be used again. Textures with the same pixels share their pages. When the budget is used up the least
+ * recently read textures are evicted, anyone still holding their handle gets nothing back and has to look again.
+ * <p>
+ * Lowering the budget evicts textures straight away, but memory already taken is only given back on a restart.
+ */
+public class TextureStore {
+    /**
+     * The store shared by all the cosmetic caches
+     */
+    public static final TextureStore OFF_HEAP = new TextureStore();
+
+    private static final int PAGE_SIZE = 4096;
+    private static final int SLAB_PAGES = 256;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final Map<Long, Handle> shared = new HashMap<>();
+    private final LinkedHashMap<Handle, Handle> recent = new LinkedHashMap<>(16, 0.75f, true);
+    private int[] freePages = new int[0];
+    private int freeCount;
+    private int maxPages;
+    private int usedPages;
+
+    /**
+     * Change how much memory the store may use, evicting textures if it is now over budget
+     *
+     * @param bytes The budget in bytes, 0 to stop storing textures
+     */
+    public synchronized void budget(long bytes) {
+        maxPages = (int) Math.min(Integer.MAX_VALUE, Math.max(0, bytes) / PAGE_SIZE);
+        while (usedPages > maxPages && evictOldest()) {
+            // Keep going until the textures fit
+        }
+    }
+
+    /**
+     * @return If textures can be stored
+     */
+    public synchronized boolean enabled() {
+        return maxPages > 0;
+    }
+
+    /**
+     * Copy a texture into the store
+     *
+     * @param imageData The texture as RGBA bytes
+     * @return A handle to read the texture back with, or null if it doesn't fit in the budget
+     */
+    public Handle put(byte[] imageData) {
+        // The length is part of the fingerprint, so the dimensions don't need to be
+        long fingerprint = Utils.fingerprint(imageData, 0, 0);
+        int pages = Math.max(1, (imageData.length + PAGE_SIZE - 1) / PAGE_SIZE);
+
+        synchronized (this) {
+            if (pages > maxPages) return null;
+
+            Handle existing = shared.get(fingerprint);
+            if (existing != null && matches(existing, imageData)) {
+                existing.refs++;
+                recent.get(existing);
+                return existing;
+            }
+
+            while (maxPages - usedPages < pages && evictOldest()) {
+                // Make room for the new texture
+            }
+
+            Handle handle = new Handle(fingerprint, imageData.length, new int[pages]);
+            for (int i = 0; i < pages; i++) {
+                int page = allocate();
+                handle.pages[i] = page;
+                page(page).put(imageData, i * PAGE_SIZE, Math.min(PAGE_SIZE, imageData.length - i * PAGE_SIZE));
+            }
+            usedPages += pages;
+
+            // Different pixels with the same fingerprint are stored apart, only the first is shared
+            shared.putIfAbsent(fingerprint, handle);
+            recent.put(handle, handle);
+            return handle;
+        }
+    }
+
+    /**
+     * Copy a texture back onto the heap
+     *
+     * @param handle The handle from {@link #put(byte[])}
+     * @return The texture as RGBA bytes, or null if it has been evicted
+     */
+    public synchronized byte[] get(Handle handle) {
+        if (handle.pages == null) return null;
+        recent.get(handle);
+
+        byte[] imageData = new byte[handle.length];
+        for (int i = 0; i < handle.pages.length; i++) {
+            page(handle.pages[i]).get(imageData, i * PAGE_SIZE, Math.min(PAGE_SIZE, handle.length - i * PAGE_SIZE));
+        }
+        return imageData;
+    }
+
+    /**
+     * Give up a handle, the texture is freed once nothing else holds it
+     *
+     * @param handle The handle from {@link #put(byte[])}
+     */
+    public synchronized void release(Handle handle) {
+        if (handle.pages == null || --handle.refs > 0) return;
+        free(handle);
+    }
+
+    /**
+     * @return The number of bytes of pages currently holding textures
+     */
+    public synchronized long usedBytes() {
+        return (long) usedPages * PAGE_SIZE;
+    }
+
+    /**
+     * @return The number of bytes taken from the OS so far
+     */
+    public synchronized long reservedBytes() {
+        return (long) slabs.size() * SLAB_PAGES * PAGE_SIZE;
+    }
+
+    private boolean matches(Handle handle, byte[] imageData) {
+        if (handle.length != imageData.length) return false;
+
+        for (int i = 0; i < handle.pages.length; i++) {
+            int offset = i * PAGE_SIZE;
+            int length = Math.min(PAGE_SIZE, imageData.length - offset);
+            if (!page(handle.pages[i]).limit(length).equals(ByteBuffer.wrap(imageData, offset, length))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean evictOldest() {
+        Iterator<Handle> oldest = recent.keySet().iterator();
+        if (!oldest.hasNext()) return false;
+
+        free(oldest.next());
+        return true;
+    }
+
+    private void free(Handle handle) {
+        for (int page : handle.pages) {
+            freePages[freeCount++] = page;
+        }
+        usedPages -= handle.pages.length;
+        handle.pages = null;
+
+        recent.remove(handle);
+        shared.remove(handle.fingerprint, handle);
+    }
+
+    private int allocate() {
+        if (freeCount == 0) {
+            // Take another slab, every page of it starts out free
+            int first = slabs.size() * SLAB_PAGES;
+            slabs.add(ByteBuffer.allocateDirect(SLAB_PAGES * PAGE_SIZE));
+
+            freePages = new int[slabs.size() * SLAB_PAGES];
+            for (int i = SLAB_PAGES - 1; i >= 0; i--) {
+                freePages[freeCount++] = first + i;
+            }
+        }
+        return freePages[--freeCount];
+    }
+
+    private ByteBuffer page(int page) {
+        return slabs.get(page / SLAB_PAGES).duplicate().position(page % SLAB_PAGES * PAGE_SIZE).slice().limit(PAGE_SIZE);
+    }
+
+    /**
+     * A texture in the store. Only the page numbers are kept on the heap.
+     */
+    public static final class Handle {
+        private final long fingerprint;
+        private final int length;
+        private int[] pages;
+        private int refs = 1;
+
+        private Handle(long fingerprint, int length, int[] pages) {
+            this.fingerprint = fingerprint;
+            this.length = length;
+            this.pages = pages;
+        }
+    }
+}
@@ -25,81 +25,104 @@
 
 package org.geysermc.extension.thirdpartycosmetics.capes;
 
-import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.CosmeticFetcher;
+import org.geysermc.extension.thirdpartycosmetics.FetchScheduler;
+import org.geysermc.extension.thirdpartycosmetics.ImageDecoder;
 import org.geysermc.extension.thirdpartycosmetics.Utils;
+import org.geysermc.extension.thirdpartycosmetics.cache.CosmeticCache;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureInterner;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureStore;
 import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.ProfileLookup;
+import org.geysermc.extension.thirdpartycosmetics.metrics.Metrics;
 import org.geysermc.geyser.api.skin.Cape;
 
-import java.awt.image.BufferedImage;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public class CapeFetcher {
-
-    /**
-     * Try and find a cape texture for a Java player
-     *
-     * @param currentCape The current players cape
-     * @param playerId The players UUID
-     * @param username The players username
-     * @return The updated cape
-     */
-    public static CompletableFuture<Cape> request(Cape currentCape, UUID playerId, String username) {
-        for (CosmeticConfig.CosmeticProviders provider : ThirdPartyCosmetics.config.capeUrls) {
-            Cape cape = Utils.getOrDefault(
-                requestCape(provider.getUrl(playerId, username), currentCape),
-                currentCape, 3
-            );
-            if (!cape.failed() && cape != currentCape) {
-                return CompletableFuture.completedFuture(cape);
-            }
+    public static final TextureInterner<Cape> TEXTURES = new TextureInterner<>(Cape::capeData);
+    public static final CosmeticCache<Cape> CACHE = new CosmeticCache<>(5000, TextureStore.OFF_HEAP, new CosmeticCache.TextureCodec<>() {
+        @Override
+        public byte[] imageData(Cape cape) {
+            return cape.capeData();
         }
 
-        return CompletableFuture.completedFuture(currentCape);
-    }
+        @Override
+        public Cape strip(Cape cape) {
+            return new Cape(cape.textureUrl(), cape.capeId(), new byte[0], false);
+        }
 
-    private static CompletableFuture<Cape> requestCape(String capeUrl, Cape currentCape) {
-        if (capeUrl == null || capeUrl.isEmpty()) return CompletableFuture.completedFuture(currentCape);
+        @Override
+        public Cape restore(Cape stripped, byte[] imageData) {
+            return createCape(stripped.textureUrl(), imageData);
+        }
+    });
 
-        CompletableFuture<Cape> future;
+    private static final CosmeticFetcher<Cape> FETCHER = new CosmeticFetcher<>("cape", ProfileLookup.CAPE, 64, 32, CACHE) {
+        @Override
+        protected List<CosmeticConfig.CosmeticProviders> providers(CosmeticConfig config) {
+            return config.capeUrls;
+        }
 
-        String[] urlSection = capeUrl.split("/");
-        byte[] capeBytes = supplyCape(capeUrl);
+        @Override
+        protected int parallelism(CosmeticConfig config) {
+            return config.capeResolution.parallelism(config.capeMaxParallel);
+        }
 
-        Cape cape = new Cape(
-            capeUrl,
-            urlSection[urlSection.length - 1], // get the texture id and use it as cape id
-            capeBytes,
-            capeBytes.length == 0
-        );
+        @Override
+        protected int staleSeconds(CosmeticConfig config) {
+            return config.capeStale;
+        }
 
-        future = CompletableFuture.completedFuture(cape);
-        return future;
-    }
+        @Override
+        protected Cape create(CosmeticConfig.CosmeticProviders provider, String url, ImageDecoder.Image image) {
+            if (image.width() == 64 && image.height() == 32) {
+                return createCape(url, image.imageData());
+            }
 
-    private static byte[] supplyCape(String capeUrl) {
-        byte[] empty = new byte[0];
+            long start = System.nanoTime();
+            byte[] resized = Utils.resizeCape(image.imageData(), image.width(), image.height());
+            Metrics.time(provider.name(), Metrics.Stage.RESIZE, start);
+            return createCape(url, resized);
+        }
 
-        try {
-            BufferedImage originalImage = Utils.downloadImage(capeUrl);
+        @Override
+        protected Cape restore(String url, byte[] imageData, int width, int height) {
+            return createCape(url, imageData);
+        }
 
-            // Invalid image
-            if(originalImage == null) return empty;
+        @Override
+        protected byte[] imageData(Cape cape) {
+            return cape.capeData();
+        }
 
-            // Default LabyMod Cape
-            if(capeUrl.contains("labymod") && Utils.imageToUuid(originalImage).toString().equals("dc1b48fa-ca1b-3eb3-b137-37f8bdaae45a")) {
-                return empty;
-            }
+        @Override
+        protected int width(Cape cape) {
+            return 64;
+        }
 
-            // Valid Cape
-            if(originalImage.getWidth() != 64 || originalImage.getHeight() != 32){
-                BufferedImage resizedImage = Utils.resizeCape(originalImage);
-                return Utils.bufferedImageToImageData(resizedImage);
-            } else {
-                return Utils.bufferedImageToImageData(originalImage);
-            }
-        } catch (Exception ignored) {
-            return empty;
+        @Override
+        protected int height(Cape cape) {
+            return 32;
         }
+    };
+
+    /**
+     * Try and find a cape texture for a Java player
+     *
+     * @param playerId The players UUID
+     * @param username The players username
+     * @param priority How urgently the lookup is needed
+     * @return The cape, or null if no provider has one
+     */
+    public static CompletableFuture<Cape> request(UUID playerId, String username, FetchScheduler.Priority priority) {
+        return FETCHER.request(playerId, username, priority);
+    }
+
+    private static Cape createCape(String capeUrl, byte[] capeBytes) {
+        // Players with the same artwork share the cape, and clients see the same cape id for it
+        return TEXTURES.intern(capeBytes, 64, 32, (imageData, id) -> new Cape(capeUrl, id, imageData, false));
     }
 }
@@ -27,17 +27,27 @@ package org.geysermc.extension.thirdpartycosmetics.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.*;
+import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 public class ConfigLoader {
+    private static final Type PROVIDERS = new TypeToken<List<CosmeticConfig.CosmeticProviders>>() {}.getType();
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().registerTypeAdapterFactory(new ProvidersAdapterFactory()).create();
+
     public static CosmeticConfig loadConfig(Path directory) {
         CosmeticConfig config = new CosmeticConfig();
 
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
         Path configFile = directory.resolve("config.json");
 
         try {
@@ -48,7 +58,7 @@ public class ConfigLoader {
             if (!configFile.toFile().exists()) {
                 try {
                     Writer writer = new FileWriter(configFile.toFile());
-                    gson.toJson(config, writer);
+                    GSON.toJson(config, writer);
                     writer.flush();
                     writer.close();
                 } catch (IOException e) {
@@ -57,13 +67,7 @@ public class ConfigLoader {
             }
 
             // Load Config
-            Reader reader = new FileReader(configFile.toFile());
-            config = gson.fromJson(reader, CosmeticConfig.class);
-            reader.close();
-
-            // Sort the auth URLs
-            config.capeUrls.sort(Comparator.comparingInt(CosmeticConfig.CosmeticProviders::priority));
-            config.earsUrls.sort(Comparator.comparingInt(CosmeticConfig.CosmeticProviders::priority));
+            config = readConfig(configFile);
         } catch (IOException exception) {
             if (configFile.toFile().delete()) {
                 return loadConfig(directory);
@@ -72,4 +76,91 @@ public class ConfigLoader {
 
         return config;
     }
-}
\ No newline at end of file
+
+    /**
+     * Read the config and prepare it for use. The returned config is a snapshot that is never changed,
+     * a new config is read instead.
+     *
+     * @param configFile The config file
+     * @return The config
+     * @throws IOException If the file can't be read or is empty
+     * @throws com.google.gson.JsonParseException If the file isn't valid JSON
+     */
+    public static CosmeticConfig readConfig(Path configFile) throws IOException {
+        try (Reader reader = Files.newBufferedReader(configFile)) {
+            return readConfig(reader);
+        }
+    }
+
+    /**
+     * Read a config from JSON, see {@link #readConfig(Path)}
+     *
+     * @param reader The JSON to read
+     * @return The config
+     * @throws IOException If the JSON can't be read or is empty
+     * @throws com.google.gson.JsonParseException If it isn't valid JSON
+     */
+    public static CosmeticConfig readConfig(Reader reader) throws IOException {
+        CosmeticConfig config = GSON.fromJson(reader, CosmeticConfig.class);
+        if (config == null) {
+            throw new IOException("The config is empty");
+        }
+
+        UrlTemplate.prepare(config);
+        return config;
+    }
+
+    private static List<CosmeticConfig.CosmeticProviders> prepareProviders(List<CosmeticConfig.CosmeticProviders> providers, List<CosmeticConfig.CosmeticProviders> defaults) {
+        if (providers == null) return List.of();
+
+        List<CosmeticConfig.CosmeticProviders> prepared = new ArrayList<>();
+        for (CosmeticConfig.CosmeticProviders provider : providers) {
+            if (provider == null || provider.disabled() || provider.url() == null) continue;
+
+            // Configs written before default textures existed still skip the built-in placeholders
+            prepared.add(fillDefaultTextures(provider, defaults));
+        }
+
+        // Sort the auth URLs
+        prepared.sort(Comparator.comparingInt(CosmeticConfig.CosmeticProviders::priority));
+        return List.copyOf(prepared);
+    }
+
+    private static CosmeticConfig.CosmeticProviders fillDefaultTextures(CosmeticConfig.CosmeticProviders provider, List<CosmeticConfig.CosmeticProviders> defaults) {
+        if (provider.defaultTextures() != null) return provider;
+
+        for (CosmeticConfig.CosmeticProviders builtIn : defaults) {
+            if (builtIn.url().equals(provider.url())) {
+                return provider.withDefaultTextures(builtIn.defaultTextures());
+            }
+        }
+        return provider.withDefaultTextures(List.of());
+    }
+
+    /**
+     * Prepares the provider lists while they are read, so the config isn't changed once it is loaded
+     */
+    private static class ProvidersAdapterFactory implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (!type.getType().equals(PROVIDERS)) return null;
+
+            TypeAdapter<List<CosmeticConfig.CosmeticProviders>> delegate = (TypeAdapter<List<CosmeticConfig.CosmeticProviders>>) gson.getDelegateAdapter(this, type);
+            return (TypeAdapter<T>) new TypeAdapter<List<CosmeticConfig.CosmeticProviders>>() {
+                @Override
+                public void write(JsonWriter out, List<CosmeticConfig.CosmeticProviders> value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public List<CosmeticConfig.CosmeticProviders> read(JsonReader in) throws IOException {
+                    CosmeticConfig defaults = new CosmeticConfig();
+                    List<CosmeticConfig.CosmeticProviders> builtIn = new ArrayList<>(defaults.capeUrls);
+                    builtIn.addAll(defaults.earsUrls);
+                    return prepareProviders(delegate.read(in), builtIn);
+                }
+            };
+        }
+    }
+}
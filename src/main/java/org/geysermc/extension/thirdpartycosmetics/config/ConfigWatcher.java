@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.config;
+
+import com.google.gson.JsonParseException;
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reads the config again whenever it changes on disk. A config that can't be read is
+ * logged and ignored, the previous one stays in use.
+ */
+public class ConfigWatcher implements AutoCloseable {
+    private static final String CONFIG_FILE = "config.json";
+    /**
+     * Editors often write a file in several steps, wait for them to finish
+     */
+    private static final long SETTLE_MILLIS = 250;
+
+    private final Path configFile;
+    private final WatchService watchService;
+    private final Consumer<CosmeticConfig> listener;
+
+    private ConfigWatcher(Path directory, WatchService watchService, Consumer<CosmeticConfig> listener) {
+        this.configFile = directory.resolve(CONFIG_FILE);
+        this.watchService = watchService;
+        this.listener = listener;
+    }
+
+    /**
+     * Start watching the config
+     *
+     * @param directory The folder the config is in
+     * @param listener Given each new config
+     * @return The watcher, which must be closed on shutdown
+     * @throws IOException If the folder can't be watched
+     */
+    public static ConfigWatcher start(Path directory, Consumer<CosmeticConfig> listener) throws IOException {
+        WatchService watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        ConfigWatcher watcher = new ConfigWatcher(directory, watchService, listener);
+        Thread thread = new Thread(watcher::watch, "ThirdPartyCosmetics-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        return watcher;
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+
+                // Let the write settle, picking up any events it causes on the way
+                WatchKey next;
+                while ((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(next);
+                }
+
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // Shutting down
+        }
+    }
+
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path path && path.toString().equals(CONFIG_FILE)) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            listener.accept(ConfigLoader.readConfig(configFile));
+        } catch (IOException | JsonParseException e) {
+            ThirdPartyCosmetics.log(logger -> logger.warning("Failed to reload the config, keeping the previous one: " + e.getMessage()));
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
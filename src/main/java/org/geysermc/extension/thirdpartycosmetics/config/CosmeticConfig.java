@@ -27,7 +27,6 @@ package org.geysermc.extension.thirdpartycosmetics.config;
 
 import com.google.gson.annotations.SerializedName;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -36,28 +35,190 @@ public class CosmeticConfig {
     public boolean customCapes = true;
     public boolean customEars = true;
 
+    @SerializedName("prefetch_on_join")
+    public boolean prefetchOnJoin = true;
+
+    @SerializedName("fetch_threads")
+    public int fetchThreads = 4;
+
+    @SerializedName("provider_timeout_ms")
+    public int providerTimeout = 3000;
+
+    @SerializedName("lookup_timeout_ms")
+    public int lookupTimeout = 5000;
+
+    @SerializedName("connect_timeout_ms")
+    public int connectTimeout = 2000;
+
+    @SerializedName("read_timeout_ms")
+    public int readTimeout = 3000;
+
+    @SerializedName("max_download_kb")
+    public int maxDownloadSize = 1024;
+
+    @SerializedName("max_image_dimension")
+    public int maxImageDimension = 4096;
+
+    @SerializedName("max_decoded_kb")
+    public int maxDecodedSize = 4096;
+
+    @SerializedName("max_connections_per_host")
+    public int maxConnectionsPerHost = 8;
+
+    @SerializedName("max_concurrent_fetches")
+    public int maxConcurrentFetches = 32;
+
+    @SerializedName("max_provider_fetches")
+    public int maxProviderFetches = 8;
+
+    @SerializedName("fetch_queue_size")
+    public int fetchQueueSize = 256;
+
+    @SerializedName("adaptive_timeouts")
+    public boolean adaptiveTimeouts = true;
+
+    @SerializedName("min_timeout_ms")
+    public int minTimeout = 500;
+
+    @SerializedName("breaker_failure_threshold")
+    public int breakerFailureThreshold = 5;
+
+    @SerializedName("breaker_cooldown_seconds")
+    public int breakerCooldown = 30;
+
+    @SerializedName("cape_resolution")
+    public ResolutionMode capeResolution = ResolutionMode.SEQUENTIAL;
+
+    @SerializedName("cape_max_parallel")
+    public int capeMaxParallel = 3;
+
+    @SerializedName("ears_resolution")
+    public ResolutionMode earsResolution = ResolutionMode.SEQUENTIAL;
+
+    @SerializedName("ears_max_parallel")
+    public int earsMaxParallel = 3;
+
+    @SerializedName("cache_max_entries")
+    public int cacheMaxEntries = 5000;
+
+    @SerializedName("cache_ttl_seconds")
+    public int cacheTtl = 1800;
+
+    @SerializedName("cache_miss_ttl_seconds")
+    public int cacheMissTtl = 300;
+
+    @SerializedName("off_heap_cache_mb")
+    public int offHeapCacheSize = 0;
+
+    @SerializedName("cape_stale_seconds")
+    public int capeStale = 86400;
+
+    @SerializedName("ears_stale_seconds")
+    public int earsStale = 86400;
+
+    @SerializedName("background_refreshes_per_second")
+    public int backgroundRefreshRate = 5;
+
+    @SerializedName("disk_cache")
+    public boolean diskCache = true;
+
+    @SerializedName("cache_backend")
+    public String cacheBackend = "disk";
+
+    @SerializedName("shared_cache_directory")
+    public String sharedCacheDirectory = "";
+
+    @SerializedName("disk_cache_max_entries")
+    public int diskCacheMaxEntries = 20000;
+
+    @SerializedName("disk_cache_max_mb")
+    public int diskCacheMaxSize = 256;
+
+    @SerializedName("metrics_interval_seconds")
+    public int metricsInterval = 60;
+
     @SerializedName("cape_urls")
-    public List<CosmeticProviders> capeUrls = new ArrayList<>() {
-        {
-            add(new CosmeticProviders("optifine", 0, "https://optifine.net/capes/{username}.png"));
-            add(new CosmeticProviders("minecraftcapes", 1, "https://api.minecraftcapes.net/profile/{uuid}/cape"));
-            add(new CosmeticProviders("labymod", 2, "https://dl.labymod.net/capes/{full_uuid}"));
-        }
-    };
+    public final List<CosmeticProviders> capeUrls = List.of(
+        new CosmeticProviders("optifine", 0, "https://optifine.net/capes/{username}.png"),
+        new CosmeticProviders("minecraftcapes", 1, "https://api.minecraftcapes.net/profile/{uuid}/cape").withProfileUrl("https://api.minecraftcapes.net/profile/{uuid}"),
+        // Only known by its png-md5 hash, its fingerprint is learnt and kept the first time it is sent
+        new CosmeticProviders("labymod", 2, "https://dl.labymod.net/capes/{full_uuid}", List.of("png-md5:dc1b48fa-ca1b-3eb3-b137-37f8bdaae45a"))
+    );
 
     @SerializedName("ears_urls")
-    public List<CosmeticProviders> earsUrls = new ArrayList<>() {
-        {
-            add(new CosmeticProviders("minecraftcapes", 0, "https://api.minecraftcapes.net/profile/{uuid}/ears"));
+    public final List<CosmeticProviders> earsUrls = List.of(
+        new CosmeticProviders("minecraftcapes", 0, "https://api.minecraftcapes.net/profile/{uuid}/ears").withProfileUrl("https://api.minecraftcapes.net/profile/{uuid}")
+    );
+
+    public enum ResolutionMode {
+        /**
+         * Ask each provider in priority order, one at a time
+         */
+        @SerializedName("sequential")
+        SEQUENTIAL,
+
+        /**
+         * Ask several providers at once, still preferring the highest priority answer
+         */
+        @SerializedName("parallel")
+        PARALLEL;
+
+        /**
+         * @param maxParallel The configured fan-out limit
+         * @return How many providers may be queried at once
+         */
+        public int parallelism(int maxParallel) {
+            return this == PARALLEL ? Math.max(1, maxParallel) : 1;
+        }
+    }
+
+    /**
+     * A cosmetic provider, the timeouts fall back to the global ones when not set.
+     * The default textures are fingerprints of placeholders the provider sends for players without a cosmetic.
+     * <p>
+     * Providers with a batch URL are asked about several players in one request, see {@link org.geysermc.extension.thirdpartycosmetics.http.BatchLookup}.
+     * Providers with a profile URL serve a player's cape and ears in one request, see {@link org.geysermc.extension.thirdpartycosmetics.http.ProfileLookup}.
+     * Disabled providers are left out when the config is loaded.
+     */
+    public record CosmeticProviders(
+        String name,
+        int priority,
+        String url,
+        @SerializedName("connect_timeout_ms") int connectTimeout,
+        @SerializedName("read_timeout_ms") int readTimeout,
+        @SerializedName("timeout_ms") int timeout,
+        @SerializedName("default_textures") List<String> defaultTextures,
+        @SerializedName("batch_url") String batchUrl,
+        @SerializedName("batch_window_ms") int batchWindow,
+        @SerializedName("batch_max_size") int batchMaxSize,
+        @SerializedName("profile_url") String profileUrl,
+        boolean disabled
+    ) {
+        public CosmeticProviders(String name, int priority, String url) {
+            this(name, priority, url, List.of());
+        }
+
+        public CosmeticProviders(String name, int priority, String url, List<String> defaultTextures) {
+            this(name, priority, url, 0, 0, 0, defaultTextures, null, 0, 0, null, false);
+        }
+
+        public CosmeticProviders withDefaultTextures(List<String> defaultTextures) {
+            return new CosmeticProviders(name, priority, url, connectTimeout, readTimeout, timeout, defaultTextures, batchUrl, batchWindow, batchMaxSize, profileUrl, disabled);
+        }
+
+        public CosmeticProviders withProfileUrl(String profileUrl) {
+            return new CosmeticProviders(name, priority, url, connectTimeout, readTimeout, timeout, defaultTextures, batchUrl, batchWindow, batchMaxSize, profileUrl, disabled);
+        }
+
+        /**
+         * @return What the provider is known by across reloads, a provider's cape and ears share a name but not a URL
+         */
+        public String key() {
+            return name + " " + url;
         }
-    };
 
-    public record CosmeticProviders(String name, int priority, String url) {
         public String getUrl(UUID uuid, String username) {
-            return this.url
-                    .replace("{username}", username)
-                    .replace("{full_uuid}", uuid.toString())
-                    .replace("{uuid}", uuid.toString().replaceAll("-", ""));
+            return UrlTemplate.of(url).render(uuid, username);
         }
     }
 
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.config;
+
+import org.geysermc.extension.thirdpartycosmetics.UrlType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A provider URL split into its fixed text and placeholders, so it can be filled in with a single pass.
+ * Anything between braces that isn't a {@link UrlType} placeholder is left as it is.
+ */
+public class UrlTemplate {
+    /**
+     * The templates of the last config read, replaced rather than added to so old URLs don't pile up
+     */
+    private static volatile Map<String, UrlTemplate> templates = Map.of();
+
+    private final String[] literals;
+    private final UrlType[] placeholders;
+    private final int length;
+
+    private UrlTemplate(String[] literals, UrlType[] placeholders) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * Get the parsed form of a URL, URLs from the config are parsed when it is read
+     *
+     * @param url The URL with placeholders
+     * @return The template
+     */
+    public static UrlTemplate of(String url) {
+        UrlTemplate template = templates.get(url);
+        return template != null ? template : parse(url);
+    }
+
+    /**
+     * Parse the URLs of a config that has just been read, dropping the templates of URLs it no longer has
+     *
+     * @param config The config
+     */
+    static void prepare(CosmeticConfig config) {
+        Map<String, UrlTemplate> previous = templates;
+        Map<String, UrlTemplate> prepared = new HashMap<>();
+        List<CosmeticConfig.CosmeticProviders> providers = new ArrayList<>(config.capeUrls);
+        providers.addAll(config.earsUrls);
+        for (CosmeticConfig.CosmeticProviders provider : providers) {
+            for (String url : new String[] {provider.url(), provider.profileUrl()}) {
+                if (url == null || url.isEmpty()) continue;
+                UrlTemplate template = previous.get(url);
+                prepared.put(url, template != null ? template : parse(url));
+            }
+        }
+        templates = Map.copyOf(prepared);
+    }
+
+    private static UrlTemplate parse(String url) {
+        List<String> literals = new ArrayList<>();
+        List<UrlType> placeholders = new ArrayList<>();
+
+        StringBuilder literal = new StringBuilder();
+        int index = 0;
+        while (index < url.length()) {
+            int open = url.indexOf('{', index);
+            int close = open < 0 ? -1 : url.indexOf('}', open);
+            if (close < 0) {
+                literal.append(url, index, url.length());
+                break;
+            }
+
+            literal.append(url, index, open);
+            UrlType type = type(url.substring(open + 1, close));
+            if (type == null) {
+                // Not one of ours, keep the brace and carry on after it
+                literal.append('{');
+                index = open + 1;
+                continue;
+            }
+
+            literals.add(literal.toString());
+            placeholders.add(type);
+            literal.setLength(0);
+            index = close + 1;
+        }
+        literals.add(literal.toString());
+
+        return new UrlTemplate(literals.toArray(new String[0]), placeholders.toArray(new UrlType[0]));
+    }
+
+    private static UrlType type(String placeholder) {
+        for (UrlType type : UrlType.values()) {
+            if (type.placeholder().equals(placeholder)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Fill in the placeholders for a player
+     *
+     * @param uuid The players UUID
+     * @param username The players username
+     * @return The URL for the player
+     */
+    public String render(UUID uuid, String username) {
+        StringBuilder url = new StringBuilder(length + placeholders.length * 36);
+        for (int i = 0; i < placeholders.length; i++) {
+            url.append(literals[i]);
+            placeholders[i].append(url, uuid, username);
+        }
+        return url.append(literals[placeholders.length]).toString();
+    }
+}
@@ -25,19 +25,85 @@
 
 package org.geysermc.extension.thirdpartycosmetics.ears;
 
-import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.CosmeticFetcher;
+import org.geysermc.extension.thirdpartycosmetics.FetchScheduler;
+import org.geysermc.extension.thirdpartycosmetics.ImageDecoder;
 import org.geysermc.extension.thirdpartycosmetics.Utils;
+import org.geysermc.extension.thirdpartycosmetics.cache.CosmeticCache;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureInterner;
+import org.geysermc.extension.thirdpartycosmetics.cache.TextureStore;
 import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.ProfileLookup;
+import org.geysermc.extension.thirdpartycosmetics.metrics.Metrics;
 import org.geysermc.geyser.api.skin.Skin;
 import org.geysermc.geyser.api.skin.SkinGeometry;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public class EarsFetcher {
+    public static final TextureInterner<byte[]> TEXTURES = new TextureInterner<>(imageData -> imageData);
+    public static final CosmeticCache<EarsTexture> CACHE = new CosmeticCache<>(5000, TextureStore.OFF_HEAP, new CosmeticCache.TextureCodec<>() {
+        @Override
+        public byte[] imageData(EarsTexture ears) {
+            return ears.imageData();
+        }
+
+        @Override
+        public EarsTexture strip(EarsTexture ears) {
+            return new EarsTexture(ears.url(), new byte[0], ears.width(), ears.height());
+        }
+
+        @Override
+        public EarsTexture restore(EarsTexture stripped, byte[] imageData) {
+            return createEars(stripped.url(), imageData, stripped.width(), stripped.height());
+        }
+    });
+
+    private static final CosmeticFetcher<EarsTexture> FETCHER = new CosmeticFetcher<>("ears", ProfileLookup.EARS, 0, 0, CACHE) {
+        @Override
+        protected List<CosmeticConfig.CosmeticProviders> providers(CosmeticConfig config) {
+            return config.earsUrls;
+        }
+
+        @Override
+        protected int parallelism(CosmeticConfig config) {
+            return config.earsResolution.parallelism(config.earsMaxParallel);
+        }
+
+        @Override
+        protected int staleSeconds(CosmeticConfig config) {
+            return config.earsStale;
+        }
+
+        @Override
+        protected EarsTexture create(CosmeticConfig.CosmeticProviders provider, String url, ImageDecoder.Image image) {
+            return createEars(url, image.imageData(), image.width(), image.height());
+        }
+
+        @Override
+        protected EarsTexture restore(String url, byte[] imageData, int width, int height) {
+            return createEars(url, imageData, width, height);
+        }
+
+        @Override
+        protected byte[] imageData(EarsTexture ears) {
+            return ears.imageData();
+        }
+
+        @Override
+        protected int width(EarsTexture ears) {
+            return ears.width();
+        }
+
+        @Override
+        protected int height(EarsTexture ears) {
+            return ears.height();
+        }
+    };
+
     private static final String EARS_GEOMETRY;
     private static final String EARS_GEOMETRY_SLIM;
 
@@ -52,23 +118,13 @@ public class EarsFetcher {
     /**
      * Try and find an ear texture for a Java player
      *
-     * @param officialSkin The current players skin
      * @param playerId The players UUID
      * @param username The players username
-     * @return The updated skin with ears
+     * @param priority How urgently the lookup is needed
+     * @return The ears texture, or null if no provider has one
      */
-    public static CompletableFuture<Skin> request(Skin officialSkin, UUID playerId, String username) {
-        for (CosmeticConfig.CosmeticProviders provider : ThirdPartyCosmetics.config.earsUrls) {
-            Skin skin = Utils.getOrDefault(
-                requestEars(provider.getUrl(playerId, username), officialSkin),
-                officialSkin, 3
-            );
-            if (skin != officialSkin) {
-                return CompletableFuture.completedFuture(skin);
-            }
-        }
-
-        return CompletableFuture.completedFuture(officialSkin);
+    public static CompletableFuture<EarsTexture> request(UUID playerId, String username, FetchScheduler.Priority priority) {
+        return FETCHER.request(playerId, username, priority);
     }
 
     /**
@@ -81,47 +137,35 @@ public class EarsFetcher {
         return new SkinGeometry("{\"geometry\" :{\"default\" :\"geometry.humanoid.ears" + (isSlim ? "Slim" : "") + "\"}}", (isSlim ? EARS_GEOMETRY_SLIM : EARS_GEOMETRY));
     }
 
-    private static CompletableFuture<Skin> requestEars(String earsUrl, Skin skin) {
-        if (earsUrl == null || earsUrl.isEmpty()) return CompletableFuture.completedFuture(skin);
-
-        Skin ears = supplyEars(skin, earsUrl);
-        return CompletableFuture.completedFuture(ears);
+    /**
+     * Players with the same ears share the texture bytes, the skins they end up on are still their own
+     */
+    private static EarsTexture createEars(String earsUrl, byte[] imageData, int width, int height) {
+        return new EarsTexture(earsUrl, TEXTURES.intern(imageData, width, height, (data, id) -> data), width, height);
     }
 
     /**
-     * Get the ears texture and place it on the skin from the given URL
+     * Place the ears texture on the skin
      *
      * @param existingSkin The players current skin
-     * @param earsUrl The URL to get the ears texture from
+     * @param ears The ears texture
      * @return The updated skin with ears
      */
-    private static Skin supplyEars(Skin existingSkin, String earsUrl) {
-        try {
-            // Get the ears texture
-            BufferedImage ears = Utils.downloadImage(earsUrl);
-            if (ears == null) throw new NullPointerException();
-
-            // Convert the skin data to a BufferedImage
-            int height = (existingSkin.skinData().length / 4 / 64);
-            BufferedImage skinImage = Utils.imageDataToBufferedImage(existingSkin.skinData(), 64, height);
-
-            // Create a new image with the ears texture over it
-            BufferedImage newSkin = new BufferedImage(skinImage.getWidth(), skinImage.getHeight(), BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g = (Graphics2D) newSkin.getGraphics();
-            g.drawImage(skinImage, 0, 0, null);
-            g.drawImage(ears, 24, 0, null);
-
-            // Turn the buffered image back into an array of bytes
-            byte[] data = Utils.bufferedImageToImageData(newSkin);
-            skinImage.flush();
-
-            // Create a new skin object with the new information
-            return new Skin(
-                earsUrl,
-                data
-            );
-        } catch (Exception ignored) { } // just ignore I guess
-
-        return existingSkin;
+    public static Skin applyEars(Skin existingSkin, EarsTexture ears) {
+        byte[] skinData = existingSkin.skinData();
+        int height = skinData.length / 4 / 64;
+        if (height == 0) return existingSkin;
+
+        // Only the rows under the ears change, the rest is a straight copy
+        long start = System.nanoTime();
+        byte[] data = skinData.clone();
+        Utils.drawOver(data, 64, height, ears.imageData(), ears.width(), ears.height(), 24, 0);
+        Metrics.time(Metrics.ALL_PROVIDERS, Metrics.Stage.COMPOSITE, start);
+
+        // Create a new skin object with the new information
+        return new Skin(
+            ears.url(),
+            data
+        );
     }
 }
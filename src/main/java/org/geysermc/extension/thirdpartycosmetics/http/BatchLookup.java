@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.geysermc.extension.thirdpartycosmetics.CosmeticExecutor;
+import org.geysermc.extension.thirdpartycosmetics.FetchScheduler;
+import org.geysermc.extension.thirdpartycosmetics.Utils;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups lookups for a provider that arrive close together into a single request.
+ * <p>
+ * The provider's batch URL has a {@code {uuids}} placeholder, which is replaced with a comma separated
+ * list of trimmed UUIDs. The provider answers with a JSON object keyed by UUID, where each value is the
+ * base64 encoded PNG for that player, or null if they have nothing. Players left out of the answer have nothing.
+ * <p>
+ * A batch is sent once the window has passed since its first lookup, or as soon as it is full.
+ */
+public class BatchLookup {
+    private static final int DEFAULT_WINDOW = 20;
+    private static final int DEFAULT_MAX_SIZE = 50;
+    private static final Gson GSON = new Gson();
+    private static final Map<String, BatchLookup> PROVIDERS = new ConcurrentHashMap<>();
+
+    private final CosmeticConfig.CosmeticProviders provider;
+    private Batch current;
+
+    private BatchLookup(CosmeticConfig.CosmeticProviders provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * @param provider The provider
+     * @return If the provider can be asked about several players at once
+     */
+    public static boolean supports(CosmeticConfig.CosmeticProviders provider) {
+        return provider.batchUrl() != null && !provider.batchUrl().isEmpty();
+    }
+
+    /**
+     * Get the batches of a provider
+     *
+     * @param provider The provider, which must have a batch URL
+     * @return The batches for the provider
+     */
+    public static BatchLookup of(CosmeticConfig.CosmeticProviders provider) {
+        BatchLookup batches = PROVIDERS.get(provider.key());
+        if (batches != null && batches.provider.equals(provider)) return batches;
+
+        // New, or its config changed on a reload, batches already waiting are still sent
+        return PROVIDERS.compute(provider.key(), (key, existing) -> existing != null && existing.provider.equals(provider) ? existing : new BatchLookup(provider));
+    }
+
+    /**
+     * Look up a player as part of the next batch
+     *
+     * @param playerId The players UUID
+     * @param timeout The total time allowed for the request in milliseconds
+     * @param priority How urgently the lookup is needed, the batch is as urgent as its most urgent player
+     * @return The players texture, with a null body if they have nothing
+     */
+    public CompletableFuture<Download> request(UUID playerId, int timeout, FetchScheduler.Priority priority) {
+        int maxSize = provider.batchMaxSize() > 0 ? provider.batchMaxSize() : DEFAULT_MAX_SIZE;
+
+        Batch batch;
+        CompletableFuture<Download> result;
+        boolean full;
+        synchronized (this) {
+            batch = current;
+            if (batch == null) {
+                batch = current = new Batch(timeout, priority);
+
+                Batch scheduled = batch;
+                int window = provider.batchWindow() > 0 ? provider.batchWindow() : DEFAULT_WINDOW;
+                CompletableFuture.delayedExecutor(window, TimeUnit.MILLISECONDS, CosmeticExecutor.get()).execute(() -> flush(scheduled));
+            }
+
+            result = batch.players.computeIfAbsent(playerId, id -> new CompletableFuture<>());
+            if (priority.compareTo(batch.priority) < 0) {
+                batch.priority = priority;
+            }
+            full = batch.players.size() >= maxSize;
+        }
+
+        if (full) {
+            flush(batch);
+        }
+
+        // Callers cancelling their copy shouldn't affect anyone else waiting on the same player
+        return result.copy();
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            if (current != batch) return;
+            current = null;
+        }
+
+        StringJoiner uuids = new StringJoiner(",");
+        for (UUID playerId : batch.players.keySet()) {
+            uuids.add(playerId.toString().replace("-", ""));
+        }
+
+        String url = provider.batchUrl().replace("{uuids}", uuids.toString());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batch.timeout);
+        FetchScheduler.submit(provider.name(), batch.priority, batch.timeout, () -> CosmeticHttpClient.download(provider, url, (int) Utils.remainingMillis(deadline), null)).whenComplete((download, throwable) -> {
+            Map<UUID, byte[]> textures = null;
+            if (throwable == null && download == null) {
+                // Shed by the scheduler
+                throwable = new RejectedExecutionException("Too many lookups waiting");
+            } else if (throwable == null) {
+                try {
+                    textures = parse(download.body());
+                } catch (RuntimeException e) {
+                    throwable = e;
+                }
+            }
+
+            for (Map.Entry<UUID, CompletableFuture<Download>> player : batch.players.entrySet()) {
+                if (throwable != null) {
+                    player.getValue().completeExceptionally(throwable);
+                } else {
+                    player.getValue().complete(new Download(textures.get(player.getKey()), false, Validators.NONE));
+                }
+            }
+        });
+    }
+
+    private static Map<UUID, byte[]> parse(byte[] body) {
+        Map<UUID, byte[]> textures = new HashMap<>();
+        if (body == null) return textures;
+
+        JsonObject players = GSON.fromJson(new String(body, StandardCharsets.UTF_8), JsonObject.class);
+        if (players == null) return textures;
+
+        for (Map.Entry<String, JsonElement> player : players.entrySet()) {
+            if (player.getValue().isJsonNull()) continue;
+
+            String id = player.getKey();
+            if (id.length() == 32) {
+                id = id.substring(0, 8) + "-" + id.substring(8, 12) + "-" + id.substring(12, 16) + "-" + id.substring(16, 20) + "-" + id.substring(20);
+            }
+            textures.put(UUID.fromString(id), Base64.getDecoder().decode(player.getValue().getAsString()));
+        }
+        return textures;
+    }
+
+    private static class Batch {
+        private final Map<UUID, CompletableFuture<Download>> players = new LinkedHashMap<>();
+        private final int timeout;
+        // The first player's priority, raised by any more urgent players that join
+        private FetchScheduler.Priority priority;
+
+        private Batch(int timeout, FetchScheduler.Priority priority) {
+            this.timeout = timeout;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.metrics.Metrics;
+import org.geysermc.geyser.api.GeyserApi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The shared HTTP layer all provider requests go through.
+ * <p>
+ * Each provider gets its own keep-alive client so its connections are pooled and reused across joins,
+ * and HTTP/2 is used wherever the host supports it.
+ */
+public class CosmeticHttpClient {
+    private static final Map<String, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final Map<String, HostLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Download a texture from a provider
+     *
+     * @param provider The provider the URL belongs to
+     * @param url The URL to download
+     * @param timeout The total time allowed for the request in milliseconds
+     * @param validators The validators of a previously downloaded copy, only sent if present
+     * @return The outcome of the request
+     */
+    public static CompletableFuture<Download> download(CosmeticConfig.CosmeticProviders provider, String url, int timeout, Validators validators) {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(new Download(null, false, Validators.NONE));
+        }
+
+        int readTimeout = Math.min(timeout, provider.readTimeout() > 0 ? provider.readTimeout() : config.readTimeout);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .GET()
+            .timeout(Duration.ofMillis(Math.max(1, readTimeout)))
+            .header("User-Agent", "GeyserMC/" + GeyserApi.api().geyserApiVersion())
+            .header("Accept-Encoding", "gzip");
+        if (validators != null) {
+            validators.apply(builder);
+        }
+        HttpRequest request = builder.build();
+
+        // Don't wait on a provider that has been failing
+        ProviderHealth health = ProviderHealth.of(provider.name());
+        if (!health.tryAcquire()) {
+            Metrics.increment(provider.name(), Metrics.Counter.SKIPPED);
+            return CompletableFuture.failedFuture(new ProviderUnavailableException(provider.name() + " is failing, skipped"));
+        }
+
+        long maxBytes = config.maxDownloadSize * 1024L;
+        HttpClient client = client(provider, config);
+        HostLimiter limiter = LIMITERS.computeIfAbsent(String.valueOf(uri.getHost()), host -> new HostLimiter(config.maxConnectionsPerHost));
+
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> response = limiter.submit(() -> client.sendAsync(request, info -> body(info, maxBytes)));
+        CompletableFuture<Download> result = response
+            .thenCompose(httpResponse -> {
+                // The provider is struggling, this says nothing about whether the player has a cosmetic
+                if (httpResponse.statusCode() / 100 == 5 || httpResponse.statusCode() == 429) {
+                    return CompletableFuture.failedFuture(new ProviderUnavailableException("HTTP " + httpResponse.statusCode()));
+                }
+
+                if (httpResponse.body() != null) {
+                    Metrics.add(provider.name(), Metrics.Counter.BYTES_DOWNLOADED, httpResponse.body().length);
+                }
+                return CompletableFuture.completedFuture(decode(httpResponse));
+            })
+            .orTimeout(timeout, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((download, throwable) -> {
+            // Abort the exchange if the caller gives up on it
+            response.cancel(true);
+
+            long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (throwable == null) {
+                health.success(latency);
+                Metrics.time(provider.name(), Metrics.Stage.HTTP, start);
+                if (download.notModified()) {
+                    Metrics.increment(provider.name(), Metrics.Counter.NOT_MODIFIED);
+                }
+            } else if (throwable instanceof CancellationException) {
+                // The caller running out of time is the same as us timing out
+                if (latency >= timeout) {
+                    health.failure(new TimeoutException("Gave up after " + latency + "ms"));
+                    Metrics.increment(provider.name(), Metrics.Counter.TIMEOUT);
+                } else {
+                    health.release();
+                }
+            } else {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                health.failure(cause);
+                Metrics.increment(provider.name(), cause instanceof TimeoutException || cause instanceof HttpTimeoutException ? Metrics.Counter.TIMEOUT : Metrics.Counter.ERROR);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Drop all pooled connections, new ones are opened with the current config on the next request.
+     * <p>
+     * The old clients aren't closed, Java 17 has no way to. They don't need to be: requests already sent on them
+     * finish as normal, and each client's selector thread exits on its own once the client is unreachable and has
+     * nothing left in flight. The limiters don't own any threads, the old ones only finish what they have queued.
+     */
+    public static void reset() {
+        CLIENTS.clear();
+        LIMITERS.clear();
+    }
+
+    private static HttpClient client(CosmeticConfig.CosmeticProviders provider, CosmeticConfig config) {
+        return CLIENTS.computeIfAbsent(provider.name(), name -> HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofMillis(provider.connectTimeout() > 0 ? provider.connectTimeout() : config.connectTimeout))
+            .build());
+    }
+
+    private static HttpResponse.BodySubscriber<byte[]> body(HttpResponse.ResponseInfo info, long maxBytes) {
+        // Only the status of anything but a success is used
+        if (info.statusCode() / 100 != 2) {
+            return HttpResponse.BodySubscribers.replacing(null);
+        }
+
+        long length = info.headers().firstValueAsLong("Content-Length").orElse(-1);
+        return new LimitedBodySubscriber(length, maxBytes);
+    }
+
+    private static Download decode(HttpResponse<byte[]> response) {
+        if (response.statusCode() == 304) {
+            return new Download(null, true, Validators.from(response.headers()));
+        }
+
+        return new Download(inflate(response), false, Validators.from(response.headers()));
+    }
+
+    private static byte[] inflate(HttpResponse<byte[]> response) {
+        byte[] body = response.body();
+        if (body == null || !response.headers().firstValue("Content-Encoding").orElse("").equalsIgnoreCase("gzip")) {
+            return body;
+        }
+
+        long maxBytes = ThirdPartyCosmetics.config().maxDownloadSize * 1024L;
+        byte[] inflated;
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            // Read one byte past the limit so oversized bodies can be told apart
+            inflated = input.readNBytes((int) Math.min(Integer.MAX_VALUE - 8, maxBytes + 1));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (inflated.length > maxBytes) {
+            throw new UncheckedIOException(new BodyTooLargeException());
+        }
+        return inflated;
+    }
+
+    /**
+     * Collects a response body, giving up as soon as it goes over the size limit
+     */
+    private static class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+        private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer;
+        private final long declaredLength;
+        private final long maxBytes;
+        private Flow.Subscription subscription;
+
+        private LimitedBodySubscriber(long declaredLength, long maxBytes) {
+            this.declaredLength = declaredLength;
+            this.maxBytes = maxBytes;
+            this.buffer = new ByteArrayOutputStream((int) Math.min(Math.max(declaredLength, 1024), maxBytes));
+        }
+
+        @Override
+        public CompletionStage<byte[]> getBody() {
+            return result;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (declaredLength > maxBytes) {
+                subscription.cancel();
+                result.completeExceptionally(new BodyTooLargeException());
+                return;
+            }
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            for (ByteBuffer item : items) {
+                if (buffer.size() + item.remaining() > maxBytes) {
+                    subscription.cancel();
+                    result.completeExceptionally(new BodyTooLargeException());
+                    return;
+                }
+
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                buffer.writeBytes(bytes);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            result.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            result.complete(buffer.toByteArray());
+        }
+    }
+
+    /**
+     * Caps how many requests can be in flight to a single host, queueing the rest
+     */
+    private static class HostLimiter {
+        private final Semaphore permits;
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger draining = new AtomicInteger();
+
+        private HostLimiter(int maxConnections) {
+            this.permits = new Semaphore(Math.max(1, maxConnections));
+        }
+
+        private <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            waiting.add(() -> {
+                if (result.isDone()) {
+                    // The caller gave up while this was queued
+                    release();
+                    return;
+                }
+
+                CompletableFuture<T> running;
+                try {
+                    running = task.get();
+                } catch (RuntimeException e) {
+                    release();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                running.whenComplete((value, throwable) -> {
+                    release();
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+                result.whenComplete((value, throwable) -> running.cancel(true));
+            });
+            drain();
+            return result;
+        }
+
+        private void release() {
+            permits.release();
+            drain();
+        }
+
+        private void drain() {
+            // A request that finishes straight away releases its permit from inside the loop, so only one caller
+            // drains at a time and the others leave it another pass instead of running the queue on their own stack
+            if (draining.getAndIncrement() != 0) {
+                return;
+            }
+
+            int passes = 1;
+            do {
+                while (!waiting.isEmpty() && permits.tryAcquire()) {
+                    Runnable next = waiting.poll();
+                    if (next == null) {
+                        permits.release();
+                        break;
+                    }
+                    next.run();
+                }
+                passes = draining.addAndGet(-passes);
+            } while (passes != 0);
+        }
+    }
+
+    private static class ProviderUnavailableException extends IOException {
+        private ProviderUnavailableException(String reason) {
+            super("Provider unavailable: " + reason);
+        }
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private BodyTooLargeException() {
+            super("Response body is larger than the configured limit");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.geysermc.extension.thirdpartycosmetics.FetchScheduler;
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.Utils;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.config.UrlTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches every cosmetic a provider has for a player in one request, for providers that serve them together.
+ * <p>
+ * The provider's profile URL answers with a JSON object with a {@code textures} object in it, keyed by cosmetic
+ * ({@code cape}, {@code ears}), where each value is the base64 encoded PNG or null if the player has nothing.
+ * <p>
+ * The cape and ears of a player are looked up side by side but not always at the same moment, the cape may still
+ * be asking providers of a higher priority. So a profile is kept for as long as a lookup may take, and whichever
+ * cosmetic asks second gets it without another request.
+ * <p>
+ * The validators of the profile are kept with each cosmetic taken from it and sent when it is looked up again, so an
+ * unchanged profile costs a 304. A 304 only tells the cosmetic that sent those validators that its copy is current,
+ * one cached from a different version of the profile fetches it in full.
+ */
+public class ProfileLookup {
+    public static final String CAPE = "cape";
+    public static final String EARS = "ears";
+
+    private static final Gson GSON = new Gson();
+    private static final Map<String, CompletableFuture<Profile>> PROFILES = new ConcurrentHashMap<>();
+
+    /**
+     * @param provider The provider
+     * @return If the provider serves all of a players cosmetics in one request
+     */
+    public static boolean supports(CosmeticConfig.CosmeticProviders provider) {
+        return provider.profileUrl() != null && !provider.profileUrl().isEmpty();
+    }
+
+    /**
+     * Get one cosmetic out of a players profile, fetching the profile if it isn't already on its way
+     *
+     * @param provider The provider, which must have a profile URL
+     * @param playerId The players UUID
+     * @param username The players username
+     * @param texture Which cosmetic to get, {@link #CAPE} or {@link #EARS}
+     * @param timeout The total time allowed for the request in milliseconds
+     * @param priority How urgently the lookup is needed
+     * @param validators The validators of the profile the cached cosmetic came from, or null if there is none
+     * @return The players texture, with a null body if they have nothing
+     */
+    public static CompletableFuture<Download> request(CosmeticConfig.CosmeticProviders provider, UUID playerId, String username, String texture,
+                                                      int timeout, FetchScheduler.Priority priority, Validators validators) {
+        String url = UrlTemplate.of(provider.profileUrl()).render(playerId, username);
+        Validators sent = validators != null ? validators : Validators.NONE;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        // Claim the profile before fetching it, a fetch that fails straight away must find itself in the map to remove itself
+        CompletableFuture<Profile> profile = new CompletableFuture<>();
+        CompletableFuture<Profile> existing = PROFILES.putIfAbsent(url, profile);
+        if (existing == null) {
+            profile.whenComplete((fetched, throwable) -> {
+                // Let the other cosmetic try again if this one failed, otherwise keep the profile around for it
+                if (throwable != null) {
+                    PROFILES.remove(url, profile);
+                } else {
+                    CompletableFuture.delayedExecutor(ThirdPartyCosmetics.config().lookupTimeout, TimeUnit.MILLISECONDS).execute(() -> PROFILES.remove(url, profile));
+                }
+            });
+            fetch(provider, url, timeout, priority, sent, profile);
+            existing = profile;
+        }
+
+        return existing.thenCompose(fetched -> {
+            if (!fetched.notModified() || fetched.sent().equals(sent)) {
+                return CompletableFuture.completedFuture(fetched.download(texture));
+            }
+
+            // The profile is unchanged since someone else's copy, which says nothing about ours
+            CompletableFuture<Profile> full = new CompletableFuture<>();
+            fetch(provider, url, (int) Utils.remainingMillis(deadline), priority, Validators.NONE, full);
+            return full.thenApply(refetched -> refetched.download(texture));
+        });
+    }
+
+    private static void fetch(CosmeticConfig.CosmeticProviders provider, String url, int timeout, FetchScheduler.Priority priority,
+                              Validators validators, CompletableFuture<Profile> profile) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        FetchScheduler.submit(provider.name(), priority, timeout,
+            () -> CosmeticHttpClient.download(provider, url, (int) Utils.remainingMillis(deadline), validators)).whenComplete((download, throwable) -> {
+                if (throwable != null) {
+                    profile.completeExceptionally(throwable);
+                } else if (download == null) {
+                    // Shed by the scheduler
+                    profile.completeExceptionally(new RejectedExecutionException("Too many lookups waiting"));
+                } else if (download.notModified()) {
+                    profile.complete(new Profile(Map.of(), true, validators, validators));
+                } else {
+                    try {
+                        profile.complete(new Profile(parse(download.body()), false, validators, download.validators()));
+                    } catch (RuntimeException e) {
+                        profile.completeExceptionally(e);
+                    }
+                }
+            });
+    }
+
+    /**
+     * @param textures The cosmetics in the profile, empty if it wasn't modified
+     * @param notModified If the provider answered that the profile is unchanged since the sent validators
+     * @param sent The validators the request was sent with
+     * @param validators The validators of the profile
+     */
+    private record Profile(Map<String, byte[]> textures, boolean notModified, Validators sent, Validators validators) {
+        Download download(String texture) {
+            return new Download(textures.get(texture), notModified, validators);
+        }
+    }
+
+    private static Map<String, byte[]> parse(byte[] body) {
+        Map<String, byte[]> textures = new HashMap<>();
+        if (body == null) return textures;
+
+        JsonObject profile = GSON.fromJson(new String(body, StandardCharsets.UTF_8), JsonObject.class);
+        JsonElement profileTextures = profile == null ? null : profile.get("textures");
+        if (profileTextures == null || !profileTextures.isJsonObject()) return textures;
+
+        for (Map.Entry<String, JsonElement> texture : profileTextures.getAsJsonObject().entrySet()) {
+            if (texture.getValue().isJsonNull()) continue;
+            textures.put(texture.getKey(), Base64.getDecoder().decode(texture.getValue().getAsString()));
+        }
+        return textures;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks how a provider has been responding, acting as a circuit breaker and deriving its timeout
+ * from the latency it has been showing.
+ * <p>
+ * After enough consecutive failures the breaker opens and requests fail straight away. Once the
+ * cooldown has passed a single probe request is let through, and its outcome decides if the breaker
+ * closes again or stays open for another cooldown.
+ */
+public class ProviderHealth {
+    private static final Map<String, ProviderHealth> PROVIDERS = new ConcurrentHashMap<>();
+
+    private static final int SAMPLES = 64;
+    private static final int MIN_SAMPLES = 16;
+    private static final double EWMA_WEIGHT = 0.2;
+
+    private final String name;
+    private final long[] latencies = new long[SAMPLES];
+    private int samples;
+    private int nextSample;
+    private long p95 = -1;
+
+    private double averageLatency;
+    private double errorRate;
+    private long requests;
+    private long failures;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probing;
+
+    private ProviderHealth(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the health tracker for a provider
+     *
+     * @param provider The provider name
+     * @return The tracker, created if this is the first request to the provider
+     */
+    public static ProviderHealth of(String provider) {
+        return PROVIDERS.computeIfAbsent(provider, ProviderHealth::new);
+    }
+
+    /**
+     * @return The trackers of every provider that has been requested so far
+     */
+    public static Map<String, ProviderHealth> all() {
+        return PROVIDERS;
+    }
+
+    /**
+     * Check if a request may be sent to the provider, claiming the probe if the breaker is ready to test it
+     *
+     * @return If the request can go ahead
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < TimeUnit.SECONDS.toNanos(ThirdPartyCosmetics.config().breakerCooldown)) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probing = true;
+                return true;
+            default:
+                // Only one probe at a time while half open
+                if (probing) {
+                    return false;
+                }
+                probing = true;
+                return true;
+        }
+    }
+
+    /**
+     * Record that the provider answered
+     *
+     * @param latency How long the request took in milliseconds
+     */
+    public synchronized void success(long latency) {
+        requests++;
+        errorRate = errorRate * (1 - EWMA_WEIGHT);
+        averageLatency = samples == 0 ? latency : averageLatency * (1 - EWMA_WEIGHT) + latency * EWMA_WEIGHT;
+
+        latencies[nextSample] = latency;
+        nextSample = (nextSample + 1) % SAMPLES;
+        samples = Math.min(samples + 1, SAMPLES);
+        p95 = -1;
+
+        consecutiveFailures = 0;
+        probing = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            ThirdPartyCosmetics.log(logger -> logger.info("Cosmetic provider " + name + " is responding again"));
+        }
+    }
+
+    /**
+     * Record that the provider failed to answer in time or returned an error
+     *
+     * @param cause What went wrong
+     */
+    public synchronized void failure(Throwable cause) {
+        requests++;
+        failures++;
+        errorRate = errorRate * (1 - EWMA_WEIGHT) + EWMA_WEIGHT;
+        consecutiveFailures++;
+        probing = false;
+
+        ThirdPartyCosmetics.log(logger -> logger.debug("Request to cosmetic provider " + name + " failed: " + cause));
+
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= config.breakerFailureThreshold)) {
+            if (state == State.CLOSED) {
+                ThirdPartyCosmetics.log(logger -> logger.warning("Cosmetic provider " + name + " failed " + consecutiveFailures
+                    + " times in a row, skipping it for " + config.breakerCooldown + "s"));
+            }
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Give up a claimed request without an outcome, for example when the caller no longer needs it
+     */
+    public synchronized void release() {
+        probing = false;
+    }
+
+    /**
+     * Get the timeout to use for the provider, based on the latency it has been showing
+     *
+     * @param maxTimeout The configured timeout, which is never exceeded
+     * @return The timeout in milliseconds
+     */
+    public synchronized int timeout(int maxTimeout) {
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        if (!config.adaptiveTimeouts || samples < MIN_SAMPLES) {
+            return maxTimeout;
+        }
+
+        long adaptive = Math.max(config.minTimeout, percentile95() * 2);
+        return (int) Math.min(maxTimeout, adaptive);
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized double averageLatency() {
+        return averageLatency;
+    }
+
+    public synchronized long percentile95() {
+        if (p95 < 0) {
+            if (samples == 0) {
+                return 0;
+            }
+
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            p95 = sorted[Math.min(samples - 1, (int) Math.ceil(samples * 0.95) - 1)];
+        }
+        return p95;
+    }
+
+    /**
+     * @return The recent error rate, weighted towards the latest requests
+     */
+    public synchronized double errorRate() {
+        return errorRate;
+    }
+
+    public synchronized long requests() {
+        return requests;
+    }
+
+    public synchronized long failures() {
+        return failures;
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+}
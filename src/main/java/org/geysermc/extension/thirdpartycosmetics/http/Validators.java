@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The cache validators a provider sent with a texture, used to check if it has changed
+ *
+ * @param etag The ETag header, or null if there was none
+ * @param lastModified The Last-Modified header in epoch milliseconds, or 0 if there was none
+ */
+public record Validators(String etag, long lastModified) {
+    public static final Validators NONE = new Validators(null, 0);
+
+    /**
+     * Read the validators from a response
+     *
+     * @param headers The response headers
+     * @return The validators, or {@link #NONE} if the provider didn't send any
+     */
+    public static Validators from(HttpHeaders headers) {
+        String etag = headers.firstValue("ETag").orElse(null);
+        long lastModified = headers.firstValue("Last-Modified").map(value -> {
+            try {
+                return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                return 0L;
+            }
+        }).orElse(0L);
+
+        if (etag == null && lastModified == 0) {
+            return NONE;
+        }
+        return new Validators(etag, lastModified);
+    }
+
+    public boolean present() {
+        return etag != null || lastModified != 0;
+    }
+
+    /**
+     * Make a request conditional on the texture having changed
+     *
+     * @param request The request to add the headers to
+     */
+    void apply(HttpRequest.Builder request) {
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+
+        if (lastModified != 0) {
+            request.header("If-Modified-Since", DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(lastModified).atZone(ZoneOffset.UTC)));
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and stage timings for cosmetic lookups, broken down by provider
+ */
+public class Metrics {
+    /**
+     * Used for work that isn't tied to a single provider
+     */
+    public static final String ALL_PROVIDERS = "all";
+
+    private static final Map<String, ProviderMetrics> PROVIDERS = new ConcurrentHashMap<>();
+
+    /**
+     * Count an event for a provider
+     *
+     * @param provider The provider name
+     * @param counter The event
+     */
+    public static void increment(String provider, Counter counter) {
+        add(provider, counter, 1);
+    }
+
+    /**
+     * Add to a counter of a provider
+     *
+     * @param provider The provider name
+     * @param counter The counter
+     * @param amount How much to add
+     */
+    public static void add(String provider, Counter counter, long amount) {
+        of(provider).counters[counter.ordinal()].add(amount);
+    }
+
+    /**
+     * Record how long a stage took
+     *
+     * @param provider The provider name
+     * @param stage The stage
+     * @param start When the stage started, as given by {@link System#nanoTime()}
+     */
+    public static void time(String provider, Stage stage, long start) {
+        of(provider).stages[stage.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * @return The metrics of every provider that has recorded anything
+     */
+    public static Map<String, ProviderMetrics> providers() {
+        return PROVIDERS;
+    }
+
+    private static ProviderMetrics of(String provider) {
+        return PROVIDERS.computeIfAbsent(provider, name -> new ProviderMetrics());
+    }
+
+    public static class ProviderMetrics {
+        private final LongAdder[] counters = new LongAdder[Counter.values().length];
+        private final Histogram[] stages = new Histogram[Stage.values().length];
+
+        private ProviderMetrics() {
+            for (int i = 0; i < counters.length; i++) {
+                counters[i] = new LongAdder();
+            }
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new Histogram();
+            }
+        }
+
+        public long count(Counter counter) {
+            return counters[counter.ordinal()].sum();
+        }
+
+        public Histogram stage(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+    }
+
+    public enum Counter {
+        /**
+         * The provider had a cosmetic for the player
+         */
+        HIT("hit"),
+        /**
+         * The provider has nothing for the player
+         */
+        MISS("miss"),
+        /**
+         * The provider sent one of its placeholder textures
+         */
+        DEFAULT_TEXTURE("default_texture"),
+        /**
+         * The provider said our cached copy is still current
+         */
+        NOT_MODIFIED("not_modified"),
+        TIMEOUT("timeout"),
+        /**
+         * The request failed, or the response couldn't be used
+         */
+        ERROR("error"),
+        /**
+         * The circuit breaker was open, so the provider wasn't asked
+         */
+        SKIPPED("skipped"),
+        /**
+         * Too many fetches were waiting, so this one was dropped
+         */
+        SHED("shed"),
+        /**
+         * An expired cosmetic was used while a background refresh looks for a newer one
+         */
+        STALE_HIT("stale_hit"),
+        BYTES_DOWNLOADED("bytes_downloaded"),
+        MEMORY_CACHE_HIT("memory_cache_hit"),
+        MEMORY_CACHE_MISS("memory_cache_miss"),
+        DISK_CACHE_HIT("disk_cache_hit"),
+        DISK_CACHE_MISS("disk_cache_miss");
+
+        private final String key;
+
+        Counter(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    public enum Stage {
+        /**
+         * Connecting to the provider and transferring the texture.
+         * The HTTP client doesn't report when the connection is made, so this covers both.
+         */
+        HTTP("http"),
+        DECODE("decode"),
+        RESIZE("resize"),
+        FINGERPRINT("fingerprint"),
+        COMPOSITE("composite");
+
+        private final String key;
+
+        Stage(String key) {
+            this.key = key;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+}
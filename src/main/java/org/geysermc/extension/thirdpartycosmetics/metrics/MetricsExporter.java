@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.http.ProviderHealth;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Makes the collected {@link Metrics} readable, as a summary for the metrics command and as
+ * JSON and Prometheus text files in the data folder that are rewritten periodically.
+ */
+public class MetricsExporter {
+    private static final String PREFIX = "thirdpartycosmetics_";
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Start writing the metrics files
+     *
+     * @param directory The folder to write them to
+     * @param intervalSeconds How often to write them, nothing is written if this isn't positive
+     */
+    public static synchronized void start(Path directory, int intervalSeconds) {
+        if (scheduler != null || intervalSeconds <= 0) return;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ThirdPartyCosmetics-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> write(directory), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop writing the metrics files, writing them one last time
+     *
+     * @param directory The folder to write them to
+     */
+    public static synchronized void stop(Path directory) {
+        if (scheduler == null) return;
+
+        scheduler.shutdownNow();
+        scheduler = null;
+        write(directory);
+    }
+
+    /**
+     * Write {@code metrics.json} and {@code metrics.prom}, replacing any previous copies
+     *
+     * @param directory The folder to write them to
+     */
+    public static void write(Path directory) {
+        try {
+            writeAtomically(directory.resolve("metrics.json"), GSON.toJson(snapshot()));
+            writeAtomically(directory.resolve("metrics.prom"), prometheus());
+        } catch (IOException | RuntimeException e) {
+            ThirdPartyCosmetics.log(logger -> logger.error("Failed to write the cosmetic metrics", e));
+        }
+    }
+
+    /**
+     * @return A short summary of each provider, one line each
+     */
+    public static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Metrics.ProviderMetrics> entry : new TreeMap<>(Metrics.providers()).entrySet()) {
+            Metrics.ProviderMetrics metrics = entry.getValue();
+            long[] http = metrics.stage(Metrics.Stage.HTTP).counts();
+
+            StringBuilder line = new StringBuilder(entry.getKey()).append(": ");
+            line.append(metrics.count(Metrics.Counter.HIT)).append(" hits, ")
+                .append(metrics.count(Metrics.Counter.MISS)).append(" misses, ")
+                .append(metrics.count(Metrics.Counter.DEFAULT_TEXTURE)).append(" defaults, ")
+                .append(metrics.count(Metrics.Counter.TIMEOUT)).append(" timeouts, ")
+                .append(metrics.count(Metrics.Counter.ERROR)).append(" errors, ")
+                .append(metrics.count(Metrics.Counter.SKIPPED)).append(" skipped, ")
+                .append(metrics.count(Metrics.Counter.SHED)).append(" shed, ")
+                .append(metrics.count(Metrics.Counter.STALE_HIT)).append(" stale");
+            line.append(" | http p50 ").append(millis(Histogram.percentile(http, 0.5)))
+                .append(" p95 ").append(millis(Histogram.percentile(http, 0.95)));
+            // Only memory misses go on to the disk cache, so every lookup is a memory hit or miss
+            line.append(" | cache hit ratio ").append(percent(
+                metrics.count(Metrics.Counter.MEMORY_CACHE_HIT) + metrics.count(Metrics.Counter.DISK_CACHE_HIT),
+                metrics.count(Metrics.Counter.MEMORY_CACHE_HIT) + metrics.count(Metrics.Counter.MEMORY_CACHE_MISS)));
+
+            ProviderHealth health = ProviderHealth.all().get(entry.getKey());
+            if (health != null && health.state() != ProviderHealth.State.CLOSED) {
+                line.append(" | breaker ").append(health.state().name().toLowerCase());
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    private static Map<String, Object> snapshot() {
+        Map<String, Object> providers = new LinkedHashMap<>();
+        for (Map.Entry<String, Metrics.ProviderMetrics> entry : new TreeMap<>(Metrics.providers()).entrySet()) {
+            Metrics.ProviderMetrics metrics = entry.getValue();
+
+            Map<String, Object> counters = new LinkedHashMap<>();
+            for (Metrics.Counter counter : Metrics.Counter.values()) {
+                counters.put(counter.key(), metrics.count(counter));
+            }
+
+            Map<String, Object> stages = new LinkedHashMap<>();
+            for (Metrics.Stage stage : Metrics.Stage.values()) {
+                Histogram histogram = metrics.stage(stage);
+                long[] counts = histogram.counts();
+                long count = 0;
+                for (long bucket : counts) {
+                    count += bucket;
+                }
+                if (count == 0) continue;
+
+                Map<String, Object> timings = new LinkedHashMap<>();
+                timings.put("count", count);
+                timings.put("mean_ms", histogram.sum() / count / 1000.0);
+                timings.put("p50_ms", Histogram.percentile(counts, 0.5) / 1000.0);
+                timings.put("p95_ms", Histogram.percentile(counts, 0.95) / 1000.0);
+                timings.put("p99_ms", Histogram.percentile(counts, 0.99) / 1000.0);
+                stages.put(stage.key(), timings);
+            }
+
+            Map<String, Object> provider = new LinkedHashMap<>();
+            provider.put("counters", counters);
+            provider.put("stages", stages);
+            providers.put(entry.getKey(), provider);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", System.currentTimeMillis());
+        snapshot.put("providers", providers);
+        return snapshot;
+    }
+
+    private static String prometheus() {
+        Map<String, Metrics.ProviderMetrics> providers = new TreeMap<>(Metrics.providers());
+        StringBuilder text = new StringBuilder();
+
+        text.append("# HELP ").append(PREFIX).append("events_total Cosmetic lookup outcomes and cache lookups\n");
+        text.append("# TYPE ").append(PREFIX).append("events_total counter\n");
+        for (Map.Entry<String, Metrics.ProviderMetrics> entry : providers.entrySet()) {
+            for (Metrics.Counter counter : Metrics.Counter.values()) {
+                if (counter == Metrics.Counter.BYTES_DOWNLOADED) continue;
+                text.append(PREFIX).append("events_total{provider=\"").append(escape(entry.getKey()))
+                    .append("\",event=\"").append(counter.key()).append("\"} ").append(entry.getValue().count(counter)).append('\n');
+            }
+        }
+
+        text.append("# HELP ").append(PREFIX).append("downloaded_bytes_total Bytes received from providers\n");
+        text.append("# TYPE ").append(PREFIX).append("downloaded_bytes_total counter\n");
+        for (Map.Entry<String, Metrics.ProviderMetrics> entry : providers.entrySet()) {
+            text.append(PREFIX).append("downloaded_bytes_total{provider=\"").append(escape(entry.getKey())).append("\"} ")
+                .append(entry.getValue().count(Metrics.Counter.BYTES_DOWNLOADED)).append('\n');
+        }
+
+        text.append("# HELP ").append(PREFIX).append("stage_seconds Time spent in each stage of a lookup\n");
+        text.append("# TYPE ").append(PREFIX).append("stage_seconds histogram\n");
+        for (Map.Entry<String, Metrics.ProviderMetrics> entry : providers.entrySet()) {
+            for (Metrics.Stage stage : Metrics.Stage.values()) {
+                Histogram histogram = entry.getValue().stage(stage);
+                long[] counts = histogram.counts();
+                String labels = "provider=\"" + escape(entry.getKey()) + "\",stage=\"" + stage.key() + "\"";
+
+                long cumulative = 0;
+                for (int i = 0; i < counts.length; i++) {
+                    cumulative += counts[i];
+                    String bound = i < Histogram.BOUNDS.length ? BigDecimal.valueOf(Histogram.BOUNDS[i], 6).stripTrailingZeros().toPlainString() : "+Inf";
+                    text.append(PREFIX).append("stage_seconds_bucket{").append(labels).append(",le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+                }
+                text.append(PREFIX).append("stage_seconds_sum{").append(labels).append("} ").append(histogram.sum() / 1_000_000.0).append('\n');
+                text.append(PREFIX).append("stage_seconds_count{").append(labels).append("} ").append(cumulative).append('\n');
+            }
+        }
+
+        text.append("# HELP ").append(PREFIX).append("provider_breaker_open Whether requests to the provider are being skipped\n");
+        text.append("# TYPE ").append(PREFIX).append("provider_breaker_open gauge\n");
+        for (Map.Entry<String, ProviderHealth> entry : new TreeMap<>(ProviderHealth.all()).entrySet()) {
+            text.append(PREFIX).append("provider_breaker_open{provider=\"").append(escape(entry.getKey())).append("\"} ")
+                .append(entry.getValue().state() == ProviderHealth.State.CLOSED ? 0 : 1).append('\n');
+        }
+
+        return text.toString();
+    }
+
+    private static void writeAtomically(Path file, String contents) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temporary, contents, StandardCharsets.UTF_8);
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String millis(long micros) {
+        return micros / 1000.0 + "ms";
+    }
+
+    private static String percent(long hits, long lookups) {
+        return lookups == 0 ? "n/a" : Math.round(hits * 100.0 / lookups) + "%";
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FetchSchedulerTest {
+    private final List<String> started = new ArrayList<>();
+    private final CompletableFuture<String> blocker = new CompletableFuture<>();
+
+    @AfterEach
+    public void finishBlocker() {
+        blocker.complete("blocker");
+        assertEquals(0, FetchScheduler.running());
+        assertEquals(0, FetchScheduler.queued());
+    }
+
+    @Test
+    public void noQueueStillRunsWhenIdle() {
+        configure(4, 0);
+        assertEquals("fetched", FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> fetch("fetched")).join());
+    }
+
+    @Test
+    public void queuedFetchesStartInPriorityOrder() {
+        configure(1, 10);
+        FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> blocker);
+
+        CompletableFuture<String> normal = FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> fetch("normal"));
+        CompletableFuture<String> background = FetchScheduler.submit("provider", FetchScheduler.Priority.BACKGROUND, 1000, () -> fetch("background"));
+        CompletableFuture<String> joining = FetchScheduler.submit("provider", FetchScheduler.Priority.JOINING, 1000, () -> fetch("joining"));
+        assertEquals(3, FetchScheduler.queued());
+        assertTrue(started.isEmpty());
+
+        blocker.complete("blocker");
+        assertEquals(List.of("joining", "normal", "background"), started);
+        assertEquals("normal", normal.join());
+        assertEquals("background", background.join());
+        assertEquals("joining", joining.join());
+    }
+
+    @Test
+    public void fullQueueShedsTheLeastUrgent() {
+        configure(1, 1);
+        FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> blocker);
+
+        CompletableFuture<String> normal = FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> fetch("normal"));
+
+        // Nothing queued is less urgent than a background fetch, so it is the one dropped
+        CompletableFuture<String> background = FetchScheduler.submit("provider", FetchScheduler.Priority.BACKGROUND, 1000, () -> fetch("background"));
+        assertTrue(background.isDone());
+        assertNull(background.join());
+
+        // A joining player takes the place of the normal fetch
+        CompletableFuture<String> joining = FetchScheduler.submit("provider", FetchScheduler.Priority.JOINING, 1000, () -> fetch("joining"));
+        assertNull(normal.join());
+        assertFalse(joining.isDone());
+
+        blocker.complete("blocker");
+        assertEquals("joining", joining.join());
+        assertEquals(List.of("joining"), started);
+    }
+
+    @Test
+    public void expiredFetchesAreDroppedOnSubmit() throws InterruptedException {
+        configure(1, 1);
+        FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> blocker);
+
+        CompletableFuture<String> expiring = FetchScheduler.submit("provider", FetchScheduler.Priority.JOINING, 1, () -> fetch("expiring"));
+        Thread.sleep(10);
+
+        CompletableFuture<String> normal = FetchScheduler.submit("provider", FetchScheduler.Priority.NORMAL, 1000, () -> fetch("normal"));
+        assertNull(expiring.join());
+        assertFalse(normal.isDone());
+
+        blocker.complete("blocker");
+        assertEquals("normal", normal.join());
+    }
+
+    @Test
+    public void providerLimitLeavesOtherProvidersFree() {
+        configure(4, 10);
+        CosmeticConfig config = ThirdPartyCosmetics.config();
+        config.maxProviderFetches = 1;
+        FetchScheduler.submit("busy", FetchScheduler.Priority.NORMAL, 1000, () -> blocker);
+
+        CompletableFuture<String> waiting = FetchScheduler.submit("busy", FetchScheduler.Priority.JOINING, 1000, () -> fetch("waiting"));
+        assertEquals("other", FetchScheduler.submit("other", FetchScheduler.Priority.BACKGROUND, 1000, () -> fetch("other")).join());
+        assertFalse(waiting.isDone());
+
+        blocker.complete("blocker");
+        assertEquals("waiting", waiting.join());
+    }
+
+    private CompletableFuture<String> fetch(String name) {
+        started.add(name);
+        return CompletableFuture.completedFuture(name);
+    }
+
+    private static void configure(int maxConcurrentFetches, int queueSize) {
+        CosmeticConfig config = new CosmeticConfig();
+        config.maxConcurrentFetches = maxConcurrentFetches;
+        config.maxProviderFetches = maxConcurrentFetches;
+        config.fetchQueueSize = queueSize;
+        ThirdPartyCosmetics.applyConfig(config);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ImageDecoderTest {
+    private CosmeticConfig config;
+
+    @BeforeEach
+    public void configure() {
+        config = new CosmeticConfig();
+        ThirdPartyCosmetics.applyConfig(config);
+    }
+
+    @Test
+    public void smallImageIsDecodedWhole() throws IOException {
+        BufferedImage image = noise(64, 32);
+        ImageDecoder.Image decoded = ImageDecoder.decode(encode(image, "png"), 64, 32, true);
+        assertEquals(64, decoded.width());
+        assertEquals(32, decoded.height());
+        assertArrayEquals(Utils.bufferedImageToImageData(image), decoded.imageData());
+        assertEquals(Utils.fingerprint(decoded.imageData(), 64, 32), decoded.fingerprint().getAsLong());
+    }
+
+    @Test
+    public void largeImageIsSubsampledToTwiceTheTarget() throws IOException {
+        BufferedImage image = noise(1024, 512);
+        byte[] full = Utils.bufferedImageToImageData(image);
+        ImageDecoder.Image decoded = ImageDecoder.decode(encode(image, "png"), 64, 32, false);
+        assertEquals(128, decoded.width());
+        assertEquals(64, decoded.height());
+        assertFalse(decoded.fingerprint().isPresent());
+
+        // The middle pixel of each 8x8 block
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 128; x++) {
+                int from = ((y * 8 + 4) * 1024 + x * 8 + 4) * 4;
+                int to = (y * 128 + x) * 4;
+                for (int channel = 0; channel < 4; channel++) {
+                    assertEquals(full[from + channel], decoded.imageData()[to + channel]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void fingerprintedImageIsSubsampledTheSameWay() throws IOException {
+        BufferedImage image = noise(512, 256);
+        byte[] png = encode(image, "png");
+
+        ImageDecoder.Image subsampled = ImageDecoder.decode(png, 64, 32, false);
+        byte[] subsampledData = subsampled.imageData().clone();
+        ImageDecoder.Image fingerprinted = ImageDecoder.decode(png, 64, 32, true);
+
+        assertEquals(subsampled.width(), fingerprinted.width());
+        assertEquals(subsampled.height(), fingerprinted.height());
+        assertArrayEquals(subsampledData, fingerprinted.imageData());
+        assertEquals(Utils.fingerprint(Utils.bufferedImageToImageData(image), 512, 256), fingerprinted.fingerprint().getAsLong());
+    }
+
+    @Test
+    public void fingerprintIsSkippedOverTheDecodedLimit() throws IOException {
+        // 512x256 is 512 KB decoded, its subsampled 128x64 is well under the limit
+        config.maxDecodedSize = 256;
+        ImageDecoder.Image decoded = ImageDecoder.decode(encode(noise(512, 256), "png"), 64, 32, true);
+        assertEquals(128, decoded.width());
+        assertFalse(decoded.fingerprint().isPresent());
+    }
+
+    @Test
+    public void imageOverTheDimensionLimitIsRejected() throws IOException {
+        config.maxImageDimension = 256;
+        assertThrows(IOException.class, () -> ImageDecoder.decode(encode(noise(512, 16), "png"), 64, 32, false));
+        assertThrows(IOException.class, () -> ImageDecoder.decode(encode(noise(16, 512), "gif"), 64, 32, false));
+    }
+
+    @Test
+    public void headerIsCheckedBeforeDecoding() throws IOException {
+        // Claim a size far over the limit, the pixels behind it are never looked at
+        byte[] png = encode(noise(64, 32), "png");
+        ByteBuffer.wrap(png).putInt(16, 100_000).putInt(20, 100_000);
+        IOException exception = assertThrows(IOException.class, () -> ImageDecoder.decode(png, 64, 32, false));
+        assertTrue(exception.getMessage().contains("100000x100000"));
+    }
+
+    @Test
+    public void imageOverTheDecodedLimitIsRejected() throws IOException {
+        config.maxDecodedSize = 16;
+        // Used as it is, so it can't be subsampled under the limit
+        assertThrows(IOException.class, () -> ImageDecoder.decode(encode(noise(128, 64), "png"), 0, 0, false));
+        ImageDecoder.decode(encode(noise(64, 32), "png"), 0, 0, false);
+    }
+
+    @Test
+    public void otherFormatsAreDecoded() throws IOException {
+        BufferedImage image = new BufferedImage(256, 128, BufferedImage.TYPE_INT_RGB);
+        ImageDecoder.Image decoded = ImageDecoder.decode(encode(image, "bmp"), 64, 32, false);
+        assertEquals(128, decoded.width());
+        assertEquals(64, decoded.height());
+        for (int i = 3; i < decoded.imageData().length; i += 4) {
+            assertEquals((byte) 255, decoded.imageData()[i]);
+        }
+    }
+
+    @Test
+    public void garbageIsRejected() {
+        assertThrows(IOException.class, () -> ImageDecoder.decode(new byte[] {1, 2, 3}, 64, 32, false));
+        assertThrows(IOException.class, () -> ImageDecoder.decode("<html>Not found</html>".getBytes(), 64, 32, false));
+    }
+
+    private static BufferedImage noise(int width, int height) {
+        Random random = new Random((long) width * height);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, output), "No " + format + " writer");
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProviderRaceTest {
+    private final List<CompletableFuture<String>> attempts = new ArrayList<>();
+
+    @Test
+    public void higherPriorityHitWins() {
+        CompletableFuture<String> result = race(3, 3);
+        assertEquals(3, attempts.size());
+
+        // A lower priority answer has to wait for everything ahead of it
+        attempts.get(2).complete("third");
+        assertFalse(result.isDone());
+        attempts.get(0).complete(null);
+        assertFalse(result.isDone());
+        attempts.get(1).complete("second");
+        assertEquals("second", result.join());
+    }
+
+    @Test
+    public void hitCancelsWhatItOutranks() {
+        CompletableFuture<String> result = race(4, 4);
+
+        attempts.get(1).complete("second");
+        assertFalse(result.isDone());
+        assertFalse(attempts.get(0).isCancelled());
+        assertTrue(attempts.get(2).isCancelled());
+        assertTrue(attempts.get(3).isCancelled());
+
+        attempts.get(0).complete(null);
+        assertEquals("second", result.join());
+    }
+
+    @Test
+    public void bestHitCancelsTheRest() {
+        CompletableFuture<String> result = race(3, 3);
+        attempts.get(0).complete("first");
+        assertEquals("first", result.join());
+        assertTrue(attempts.get(1).isCancelled());
+        assertTrue(attempts.get(2).isCancelled());
+    }
+
+    @Test
+    public void parallelismLimitsProvidersInFlight() {
+        CompletableFuture<String> result = race(4, 2);
+        assertEquals(2, attempts.size());
+
+        attempts.get(0).complete(null);
+        assertEquals(3, attempts.size());
+
+        // Nothing after a hit is started
+        attempts.get(1).complete("second");
+        assertEquals(3, attempts.size());
+        assertTrue(attempts.get(2).isCancelled());
+        assertEquals("second", result.join());
+    }
+
+    @Test
+    public void failureCountsAsAMiss() {
+        CompletableFuture<String> result = race(2, 1);
+        attempts.get(0).completeExceptionally(new IllegalStateException("Test failure"));
+        attempts.get(1).complete("second");
+        assertEquals("second", result.join());
+    }
+
+    @Test
+    public void noHitGivesTheFallback() {
+        CompletableFuture<String> result = race(3, 2);
+        attempts.get(0).complete(null);
+        attempts.get(1).complete(null);
+        attempts.get(2).complete(null);
+        assertNull(result.join());
+    }
+
+    @Test
+    public void cancellingTheRaceCancelsProvidersInFlight() {
+        CompletableFuture<String> result = race(3, 2);
+        result.cancel(true);
+        assertTrue(attempts.get(0).isCancelled());
+        assertTrue(attempts.get(1).isCancelled());
+
+        // No further providers are started
+        assertEquals(2, attempts.size());
+    }
+
+    private CompletableFuture<String> race(int providers, int parallelism) {
+        return ProviderRace.race(providers, parallelism, index -> {
+            CompletableFuture<String> attempt = new CompletableFuture<>();
+            attempts.add(attempt);
+            return attempt;
+        }, Objects::nonNull, null);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SingleFlightTest {
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final AtomicInteger started = new AtomicInteger();
+
+    @Test
+    public void callersShareOneRequest() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> start(source));
+        CompletableFuture<String> second = flights.run("key", () -> start(new CompletableFuture<>()));
+        assertEquals(1, started.get());
+
+        source.complete("value");
+        assertEquals("value", first.join());
+        assertEquals("value", second.join());
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void cancellingOneCallerKeepsTheRequest() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> start(source));
+        CompletableFuture<String> second = flights.run("key", () -> start(new CompletableFuture<>()));
+
+        first.cancel(true);
+        assertFalse(source.isDone());
+
+        source.complete("value");
+        assertEquals("value", second.join());
+    }
+
+    @Test
+    public void cancellingEveryCallerCancelsTheRequest() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> start(source));
+        CompletableFuture<String> second = flights.run("key", () -> start(new CompletableFuture<>()));
+
+        first.cancel(true);
+        second.cancel(true);
+        assertTrue(source.isCancelled());
+        assertEquals(0, flights.size());
+
+        // The abandoned request isn't joined, the next caller starts a new one
+        CompletableFuture<String> next = flights.run("key", () -> start(CompletableFuture.completedFuture("again")));
+        assertEquals("again", next.join());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    public void failureReachesEveryCaller() {
+        CompletableFuture<String> source = new CompletableFuture<>();
+        CompletableFuture<String> first = flights.run("key", () -> start(source));
+        CompletableFuture<String> second = flights.run("key", () -> start(new CompletableFuture<>()));
+
+        source.completeExceptionally(new IllegalStateException("Test failure"));
+        assertThrows(CompletionException.class, first::join);
+        assertThrows(CompletionException.class, second::join);
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void taskThatThrowsFailsItsCallers() {
+        CompletableFuture<String> failed = flights.run("key", () -> {
+            throw new IllegalStateException("Test failure");
+        });
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, flights.size());
+    }
+
+    @Test
+    public void finishedRequestIsNotShared() {
+        assertEquals("first", flights.run("key", () -> start(CompletableFuture.completedFuture("first"))).join());
+        assertEquals("second", flights.run("key", () -> start(CompletableFuture.completedFuture("second"))).join());
+        assertEquals(2, started.get());
+    }
+
+    @Test
+    public void keysAreKeptApart() {
+        CompletableFuture<String> first = flights.run("first", () -> start(new CompletableFuture<>()));
+        CompletableFuture<String> second = flights.run("second", () -> start(CompletableFuture.completedFuture("second")));
+        assertEquals(2, started.get());
+        assertEquals("second", second.join());
+        assertFalse(first.isDone());
+        first.cancel(true);
+    }
+
+    private CompletableFuture<String> start(CompletableFuture<String> source) {
+        started.incrementAndGet();
+        return source;
+    }
+}
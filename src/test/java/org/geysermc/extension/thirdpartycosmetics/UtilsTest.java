@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UtilsTest {
+    @Test
+    public void capeOfTheRightSizeIsUnchanged() {
+        byte[] cape = noise(new Random(1), 64, 32);
+        assertSimilar(cape, Utils.resizeCape(cape, 64, 32), 0, "64x32");
+    }
+
+    @Test
+    public void resizedCapeMatchesJava2D() {
+        Random random = new Random(2);
+        int[][] sizes = {{128, 64}, {256, 128}, {512, 256}, {1024, 512}, {100, 50}, {64, 64}, {22, 17}, {300, 32}};
+        for (int[] size : sizes) {
+            byte[] image = noise(random, size[0], size[1]);
+            byte[] expected = Utils.bufferedImageToImageData(resizeWithJava2D(Utils.imageDataToBufferedImage(image, size[0], size[1])));
+            assertSimilar(expected, Utils.resizeCape(image, size[0], size[1]), 2, size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    public void drawOverMatchesJava2D() {
+        Random random = new Random(3);
+        // Inside the target, against its edges and hanging off them
+        int[][] positions = {{0, 0}, {10, 5}, {50, 54}, {60, 60}, {0, 63}};
+        for (int[] position : positions) {
+            byte[] target = noise(random, 64, 64);
+            byte[] source = noise(random, 14, 10);
+
+            BufferedImage expected = Utils.imageDataToBufferedImage(target, 64, 64);
+            Graphics2D graphics = expected.createGraphics();
+            graphics.drawImage(Utils.imageDataToBufferedImage(source, 14, 10), position[0], position[1], null);
+            graphics.dispose();
+
+            Utils.drawOver(target, 64, 64, source, 14, 10, position[0], position[1]);
+            assertSimilar(Utils.bufferedImageToImageData(expected), target, 2, position[0] + "," + position[1]);
+        }
+    }
+
+    @Test
+    public void drawOverLeavesTransparentSourceAlone() {
+        byte[] target = noise(new Random(4), 16, 16);
+        byte[] original = target.clone();
+        Utils.drawOver(target, 16, 16, new byte[8 * 8 * 4], 8, 8, 4, 4);
+        assertArrayEquals(original, target);
+    }
+
+    /**
+     * Random pixels, a third of them opaque, a third transparent and the rest somewhere between
+     */
+    private static byte[] noise(Random random, int width, int height) {
+        byte[] image = new byte[width * height * 4];
+        random.nextBytes(image);
+        for (int i = 3; i < image.length; i += 4) {
+            int kind = random.nextInt(3);
+            if (kind == 0) image[i] = (byte) 255;
+            else if (kind == 1) image[i] = 0;
+        }
+        return image;
+    }
+
+    /**
+     * Check two images are the same to within a difference per channel, ignoring the colour of transparent pixels.
+     * Java2D keeps colours premultiplied by alpha while blending, so below half opacity the colour of its result is
+     * only accurate to a step of 255 / alpha and is allowed to be off by that much more.
+     */
+    private static void assertSimilar(byte[] expected, byte[] actual, int difference, String message) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i += 4) {
+            int alpha = expected[i + 3] & 0xFF;
+            int alphaDelta = Math.abs(alpha - (actual[i + 3] & 0xFF));
+            assertTrue(alphaDelta <= difference, message + ": pixel " + i / 4 + " alpha is off by " + alphaDelta);
+            if (alpha == 0 && actual[i + 3] == 0) continue;
+
+            int allowed = alpha < 128 ? difference + 255 / Math.max(alpha, 1) : difference;
+            for (int channel = 0; channel < 3; channel++) {
+                int delta = Math.abs((expected[i + channel] & 0xFF) - (actual[i + channel] & 0xFF));
+                assertTrue(delta <= allowed, message + ": pixel " + i / 4 + " channel " + channel + " is off by " + delta);
+            }
+        }
+    }
+
+    /**
+     * How capes were resized before, padding with Graphics and scaling with a bilinear draw
+     */
+    private static BufferedImage resizeWithJava2D(BufferedImage original) {
+        int width = 64;
+        int height = 32;
+        while (width < original.getWidth() || height < original.getHeight()) {
+            width *= 2;
+            height *= 2;
+        }
+
+        BufferedImage padded = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = padded.createGraphics();
+        graphics.drawImage(original, 0, 0, null);
+        graphics.dispose();
+
+        BufferedImage resized = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+        graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(padded, 0, 0, 64, 32, null);
+        graphics.dispose();
+        return resized;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiskCacheTest {
+    private Path directory;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("disk-cache-test");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void storedEntriesAreReadBack() throws IOException {
+        DiskCache cache = DiskCache.open(directory, 100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        byte[] texture = texture(1, 64 * 32 * 4);
+        Validators validators = new Validators("\"etag\"", 1234000L);
+
+        cache.put("provider", player, texture, 64, 32, validators);
+        cache.putMiss("provider", missing);
+
+        CacheBackend.Entry entry = cache.get("provider", player);
+        assertArrayEquals(texture, entry.bytes());
+        assertEquals(64, entry.width());
+        assertEquals(32, entry.height());
+        assertEquals(validators, entry.validators());
+
+        assertTrue(cache.get("provider", missing).miss());
+        assertNull(cache.get("other", player));
+        assertNull(cache.get("provider", UUID.randomUUID()));
+        cache.close();
+    }
+
+    @Test
+    public void entriesSurviveReopening() throws IOException {
+        UUID player = UUID.randomUUID();
+        byte[] texture = texture(2, 1024);
+
+        DiskCache cache = DiskCache.open(directory, 100, 1 << 20);
+        cache.put("provider", player, texture, 16, 16, Validators.NONE);
+        cache.close();
+
+        cache = DiskCache.open(directory, 100, 1 << 20);
+        assertArrayEquals(texture, cache.get("provider", player).bytes());
+        cache.close();
+    }
+
+    @Test
+    public void replacedTextureIsDeleted() throws IOException {
+        DiskCache cache = DiskCache.open(directory, 100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        byte[] shared = texture(3, 1024);
+
+        // The same texture for two players is one file, kept until neither uses it
+        cache.put("provider", player, shared, 16, 16, Validators.NONE);
+        cache.put("provider", other, shared, 16, 16, Validators.NONE);
+        assertEquals(1, textureFiles());
+
+        cache.put("provider", player, texture(4, 1024), 16, 16, Validators.NONE);
+        assertEquals(2, textureFiles());
+        cache.putMiss("provider", other);
+        assertEquals(1, textureFiles());
+        cache.close();
+    }
+
+    @Test
+    public void entryLimitIsKept() throws IOException, InterruptedException {
+        DiskCache cache = DiskCache.open(directory, 20, 1 << 20);
+        UUID[] players = new UUID[21];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            cache.put("provider", players[i], texture(i, 64), 4, 4, Validators.NONE);
+            Thread.sleep(2);
+        }
+
+        // Going over 20 entries drops the oldest down to 18
+        assertEquals(18, stored(cache, players));
+        assertNull(cache.get("provider", players[0]));
+        assertNotNull(cache.get("provider", players[20]));
+        cache.close();
+    }
+
+    @Test
+    public void byteLimitOnlyEvictsWhatItNeeds() throws IOException, InterruptedException {
+        DiskCache cache = DiskCache.open(directory, 1000, 1000);
+        UUID[] players = new UUID[11];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            cache.put("provider", players[i], texture(i, 100), 5, 5, Validators.NONE);
+            Thread.sleep(2);
+        }
+
+        // 1100 bytes is over the limit, the oldest go until there are 900
+        assertEquals(9, stored(cache, players));
+        assertNull(cache.get("provider", players[1]));
+        assertNotNull(cache.get("provider", players[2]));
+        cache.close();
+    }
+
+    @Test
+    public void missingTextureFileIsForgotten() throws IOException {
+        DiskCache cache = DiskCache.open(directory, 100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        cache.put("provider", player, texture(5, 256), 8, 8, Validators.NONE);
+
+        try (Stream<Path> files = Files.list(directory.resolve("textures"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        assertNull(cache.get("provider", player));
+        assertNull(cache.get("provider", player));
+        cache.close();
+    }
+
+    private int textureFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory.resolve("textures"))) {
+            return (int) files.count();
+        }
+    }
+
+    private static int stored(DiskCache cache, UUID[] players) {
+        int stored = 0;
+        for (UUID player : players) {
+            if (cache.get("provider", player) != null) stored++;
+        }
+        return stored;
+    }
+
+    private static byte[] texture(int seed, int length) {
+        byte[] texture = new byte[length];
+        for (int i = 0; i < length; i++) {
+            texture[i] = (byte) (seed * 31 + i);
+        }
+        return texture;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.extension.thirdpartycosmetics.http.Validators;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MemoryCacheTest {
+    @Test
+    public void storedEntriesAreReadBack() {
+        MemoryCache cache = new MemoryCache(100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        byte[] texture = texture(1, 64 * 32 * 4);
+        Validators validators = new Validators("\"etag\"", 1234000L);
+
+        cache.put("provider", player, texture, 64, 32, validators);
+        cache.putMiss("provider", missing);
+
+        // Changing the array afterwards doesn't change what is stored
+        byte[] stored = texture.clone();
+        texture[0]++;
+
+        CacheBackend.Entry entry = cache.get("provider", player);
+        assertArrayEquals(stored, entry.bytes());
+        assertEquals(64, entry.width());
+        assertEquals(32, entry.height());
+        assertEquals(validators, entry.validators());
+
+        assertTrue(cache.get("provider", missing).miss());
+        assertNull(cache.get("other", player));
+        assertEquals(stored.length, cache.bytes());
+    }
+
+    @Test
+    public void touchKeepsTheTexture() throws InterruptedException {
+        MemoryCache cache = new MemoryCache(100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        byte[] texture = texture(2, 1024);
+        cache.put("provider", player, texture, 16, 16, Validators.NONE);
+        long stored = cache.get("provider", player).timestamp();
+
+        Thread.sleep(5);
+        cache.touch("provider", player);
+        CacheBackend.Entry entry = cache.get("provider", player);
+        assertTrue(entry.timestamp() > stored);
+        assertArrayEquals(texture, entry.bytes());
+
+        // Nothing to touch
+        cache.touch("provider", UUID.randomUUID());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void replacedTextureIsNoLongerCounted() {
+        MemoryCache cache = new MemoryCache(100, 1 << 20);
+        UUID player = UUID.randomUUID();
+        cache.put("provider", player, texture(3, 4096), 32, 32, Validators.NONE);
+        cache.put("provider", player, texture(4, 1024), 16, 16, Validators.NONE);
+        assertEquals(1024, cache.bytes());
+
+        cache.putMiss("provider", player);
+        assertEquals(0, cache.bytes());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedOverTheEntryLimit() {
+        MemoryCache cache = new MemoryCache(3, 1 << 20);
+        UUID[] players = {UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()};
+        for (int i = 0; i < 3; i++) {
+            cache.put("provider", players[i], texture(i, 100), 5, 5, Validators.NONE);
+        }
+        assertNotNull(cache.get("provider", players[0]));
+
+        cache.putMiss("provider", players[3]);
+        assertEquals(3, cache.size());
+        assertNull(cache.get("provider", players[1]));
+        assertNotNull(cache.get("provider", players[0]));
+        assertEquals(200, cache.bytes());
+    }
+
+    @Test
+    public void texturesAreEvictedOverTheByteLimit() {
+        MemoryCache cache = new MemoryCache(100, 1000);
+        UUID[] players = new UUID[11];
+        for (int i = 0; i < players.length; i++) {
+            players[i] = UUID.randomUUID();
+            cache.put("provider", players[i], texture(i, 100), 5, 5, Validators.NONE);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(1000, cache.bytes());
+        assertNull(cache.get("provider", players[0]));
+
+        // Too large to ever fit, so it doesn't push anything out
+        cache.put("provider", UUID.randomUUID(), texture(99, 1001), 10, 25, Validators.NONE);
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void memoryBackendCanBeChosen() throws IOException {
+        CosmeticConfig config = new CosmeticConfig();
+        config.cacheBackend = "memory";
+        CacheBackend backend = CacheBackends.open(Path.of("unused"), config);
+        assertTrue(backend instanceof MemoryCache);
+        backend.close();
+    }
+
+    private static byte[] texture(int seed, int length) {
+        byte[] texture = new byte[length];
+        Arrays.fill(texture, (byte) seed);
+        return texture;
+    }
+}
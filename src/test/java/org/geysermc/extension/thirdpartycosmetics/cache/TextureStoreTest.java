@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TextureStoreTest {
+    private static final int PAGE = 4096;
+
+    private final Random random = new Random(1);
+
+    @Test
+    public void texturesRoundTrip() {
+        TextureStore store = store(64);
+        byte[] cape = texture(64 * 32 * 4);
+        byte[] odd = texture(PAGE * 2 + 100);
+        byte[] tiny = texture(4);
+
+        TextureStore.Handle capeHandle = store.put(cape);
+        TextureStore.Handle oddHandle = store.put(odd);
+        TextureStore.Handle tinyHandle = store.put(tiny);
+        assertArrayEquals(cape, store.get(capeHandle));
+        assertArrayEquals(odd, store.get(oddHandle));
+        assertArrayEquals(tiny, store.get(tinyHandle));
+        assertEquals(6L * PAGE, store.usedBytes());
+    }
+
+    @Test
+    public void samePixelsShareTheirPages() {
+        TextureStore store = store(64);
+        byte[] cape = texture(PAGE);
+
+        TextureStore.Handle first = store.put(cape);
+        TextureStore.Handle second = store.put(cape.clone());
+        assertSame(first, second);
+        assertEquals(PAGE, store.usedBytes());
+
+        // Freed once both holders have let go
+        store.release(first);
+        assertArrayEquals(cape, store.get(second));
+        store.release(second);
+        assertNull(store.get(second));
+        assertEquals(0, store.usedBytes());
+    }
+
+    @Test
+    public void differentPixelsAreKeptApart() {
+        TextureStore store = store(64);
+        byte[] cape = texture(PAGE);
+        byte[] changed = cape.clone();
+        changed[PAGE - 1]++;
+
+        TextureStore.Handle first = store.put(cape);
+        TextureStore.Handle second = store.put(changed);
+        assertNotSame(first, second);
+        assertArrayEquals(cape, store.get(first));
+        assertArrayEquals(changed, store.get(second));
+    }
+
+    @Test
+    public void freedPagesAreUsedAgain() {
+        TextureStore store = store(64);
+        for (int i = 0; i < 1000; i++) {
+            store.release(store.put(texture(PAGE * 3)));
+        }
+        assertEquals(0, store.usedBytes());
+        assertEquals(256L * PAGE, store.reservedBytes());
+    }
+
+    @Test
+    public void leastRecentlyReadIsEvicted() {
+        TextureStore store = store(4);
+        TextureStore.Handle first = store.put(texture(PAGE));
+        TextureStore.Handle second = store.put(texture(PAGE));
+        TextureStore.Handle third = store.put(texture(PAGE));
+        assertNotNull(store.get(first));
+
+        // Needs two pages with one free, the second texture is the oldest now the first has been read
+        TextureStore.Handle large = store.put(texture(PAGE * 2));
+        assertNull(store.get(second));
+        assertNotNull(store.get(first));
+        assertNotNull(store.get(third));
+        assertNotNull(store.get(large));
+        assertEquals(4L * PAGE, store.usedBytes());
+
+        // Releasing an evicted handle does nothing
+        store.release(second);
+        assertEquals(4L * PAGE, store.usedBytes());
+    }
+
+    @Test
+    public void loweringTheBudgetEvicts() {
+        TextureStore store = store(4);
+        TextureStore.Handle first = store.put(texture(PAGE));
+        TextureStore.Handle second = store.put(texture(PAGE));
+
+        store.budget(PAGE);
+        assertNull(store.get(first));
+        assertNotNull(store.get(second));
+        assertEquals(PAGE, store.usedBytes());
+    }
+
+    @Test
+    public void texturesOverTheBudgetAreNotStored() {
+        TextureStore store = store(2);
+        assertNull(store.put(texture(PAGE * 3)));
+        assertEquals(0, store.usedBytes());
+
+        store.budget(0);
+        assertFalse(store.enabled());
+        assertNull(store.put(texture(4)));
+
+        store.budget(PAGE);
+        assertTrue(store.enabled());
+    }
+
+    private static TextureStore store(int pages) {
+        TextureStore store = new TextureStore();
+        store.budget((long) pages * PAGE);
+        return store;
+    }
+
+    private byte[] texture(int length) {
+        byte[] texture = new byte[length];
+        random.nextBytes(texture);
+        return texture;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.config;
+
+import org.geysermc.extension.thirdpartycosmetics.DefaultTextures;
+import org.geysermc.extension.thirdpartycosmetics.http.BatchLookup;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class ConfigReloadTest {
+    private static final String CONFIG = """
+        {
+          "cape_urls": [
+            {"name": "labymod", "priority": 0, "url": "https://dl.labymod.net/capes/{full_uuid}", "default_textures": ["0123456789abcdef"]},
+            {"name": "batched", "priority": 1, "url": "https://example.com/capes/{uuid}", "batch_url": "https://example.com/capes?uuids={uuids}"}
+          ],
+          "ears_urls": [
+            {"name": "batched", "priority": 0, "url": "https://example.com/ears/{uuid}", "batch_url": "https://example.com/ears?uuids={uuids}"}
+          ]
+        }
+        """;
+
+    @Test
+    public void reloadingTheSameConfigKeepsProviderState() throws IOException {
+        CosmeticConfig first = ConfigLoader.readConfig(new StringReader(CONFIG));
+        CosmeticConfig second = ConfigLoader.readConfig(new StringReader(CONFIG));
+        assertEquals(first.capeUrls, second.capeUrls);
+        assertEquals(first.earsUrls, second.earsUrls);
+
+        for (int i = 0; i < first.capeUrls.size(); i++) {
+            assertSame(DefaultTextures.of(first.capeUrls.get(i)), DefaultTextures.of(second.capeUrls.get(i)));
+        }
+        assertSame(BatchLookup.of(first.capeUrls.get(1)), BatchLookup.of(second.capeUrls.get(1)));
+        assertSame(BatchLookup.of(first.earsUrls.get(0)), BatchLookup.of(second.earsUrls.get(0)));
+
+        // The cape and ears of a provider share its name but are kept apart
+        assertNotSame(BatchLookup.of(first.capeUrls.get(1)), BatchLookup.of(first.earsUrls.get(0)));
+    }
+
+    @Test
+    public void changedProviderIsReplaced() throws IOException {
+        CosmeticConfig first = ConfigLoader.readConfig(new StringReader(CONFIG));
+        CosmeticConfig changed = ConfigLoader.readConfig(new StringReader(CONFIG.replace("0123456789abcdef", "fedcba9876543210")));
+
+        DefaultTextures before = DefaultTextures.of(first.capeUrls.get(0));
+        DefaultTextures after = DefaultTextures.of(changed.capeUrls.get(0));
+        assertNotSame(before, after);
+        assertSame(after, DefaultTextures.of(changed.capeUrls.get(0)));
+    }
+
+    @Test
+    public void removedProviderIsForgotten() throws IOException {
+        CosmeticConfig first = ConfigLoader.readConfig(new StringReader(CONFIG));
+        CosmeticConfig.CosmeticProviders labymod = first.capeUrls.get(0);
+        DefaultTextures before = DefaultTextures.of(labymod);
+
+        DefaultTextures.retain(first);
+        assertSame(before, DefaultTextures.of(labymod));
+
+        DefaultTextures.retain(ConfigLoader.readConfig(new StringReader("{\"cape_urls\": [], \"ears_urls\": []}")));
+        assertNotSame(before, DefaultTextures.of(labymod));
+    }
+
+    @Test
+    public void templatesMatchUnparsedUrls() throws IOException {
+        CosmeticConfig config = ConfigLoader.readConfig(new StringReader(CONFIG));
+        CosmeticConfig.CosmeticProviders provider = config.capeUrls.get(0);
+        assertSame(UrlTemplate.of(provider.url()), UrlTemplate.of(provider.url()));
+
+        // URLs that didn't come from a config are parsed each time rather than kept
+        String other = "https://example.com/other/{uuid}";
+        assertNotSame(UrlTemplate.of(other), UrlTemplate.of(other));
+    }
+}
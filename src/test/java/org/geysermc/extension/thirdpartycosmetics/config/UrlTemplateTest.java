@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.config;
+
+import org.geysermc.extension.thirdpartycosmetics.UrlType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class UrlTemplateTest {
+    private static final String[] USERNAMES = {"Steve", "a", "Player_123", "ABCDEFGHIJKLMNOP"};
+
+    @Test
+    public void everyPlaceholderMatchesReplace() {
+        for (UrlType type : UrlType.values()) {
+            String placeholder = "{" + type.placeholder() + "}";
+            assertRendersLikeReplace("https://example.com/" + placeholder);
+            assertRendersLikeReplace("https://example.com/" + placeholder + ".png");
+            assertRendersLikeReplace(placeholder + placeholder);
+            assertRendersLikeReplace("https://example.com/" + placeholder + "?again=" + placeholder);
+        }
+    }
+
+    @Test
+    public void placeholdersTogetherMatchReplace() {
+        assertRendersLikeReplace("https://example.com/{username}/{uuid}/{full_uuid}");
+        assertRendersLikeReplace("https://example.com/{full_uuid}{uuid}{username}");
+    }
+
+    @Test
+    public void defaultProvidersMatchReplace() {
+        CosmeticConfig config = new CosmeticConfig();
+        List<CosmeticConfig.CosmeticProviders> providers = new ArrayList<>(config.capeUrls);
+        providers.addAll(config.earsUrls);
+        for (CosmeticConfig.CosmeticProviders provider : providers) {
+            assertRendersLikeReplace(provider.url());
+            if (provider.profileUrl() != null && !provider.profileUrl().isEmpty()) {
+                assertRendersLikeReplace(provider.profileUrl());
+            }
+        }
+    }
+
+    @Test
+    public void otherBracesAreKept() {
+        assertRendersLikeReplace("https://example.com/");
+        assertRendersLikeReplace("https://example.com/{name}/{uuid}");
+        assertRendersLikeReplace("https://example.com/{{uuid}}");
+        assertRendersLikeReplace("https://example.com/{uuid");
+        assertRendersLikeReplace("https://example.com/uuid}/{");
+        assertRendersLikeReplace("{}{username}{");
+    }
+
+    /**
+     * Check a template renders the same as the string replacements provider URLs were filled in with before
+     */
+    private static void assertRendersLikeReplace(String url) {
+        Random random = new Random(url.hashCode());
+        for (String username : USERNAMES) {
+            // Include leading zeros, the undashed UUID is written without Long.toHexString
+            UUID uuid = username.length() == 1 ? new UUID(0x0f, 1) : new UUID(random.nextLong(), random.nextLong());
+            String expected = url
+                .replace("{username}", username)
+                .replace("{full_uuid}", uuid.toString())
+                .replace("{uuid}", uuid.toString().replaceAll("-", ""));
+            assertEquals(expected, UrlTemplate.of(url).render(uuid, username));
+        }
+    }
+}
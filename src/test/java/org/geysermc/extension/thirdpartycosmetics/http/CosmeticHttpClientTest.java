@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.geysermc.api.Geyser;
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.geyser.api.GeyserApi;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CosmeticHttpClientTest {
+    private static final byte[] TEXTURE = {1, 2, 3, 4};
+    private static final CountDownLatch SLOW = new CountDownLatch(1);
+
+    private static HttpServer server;
+    private static String host;
+
+    @BeforeAll
+    public static void start() throws IOException {
+        // Requests are sent with the Geyser version in the user agent
+        Geyser.set((GeyserApi) Proxy.newProxyInstance(GeyserApi.class.getClassLoader(), new Class<?>[] {GeyserApi.class},
+            (proxy, method, args) -> method.getName().equals("geyserApiVersion") ? "test" : null));
+
+        CosmeticConfig config = new CosmeticConfig();
+        config.maxConnectionsPerHost = 1;
+        config.readTimeout = 10_000;
+        config.breakerFailureThreshold = Integer.MAX_VALUE;
+        ThirdPartyCosmetics.applyConfig(config);
+        // Other tests share the loopback host, start with a limiter that has this config's single connection
+        CosmeticHttpClient.reset();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/texture", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(200, TEXTURE.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(TEXTURE);
+                }
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        });
+        server.createContext("/unavailable", exchange -> {
+            try (exchange) {
+                exchange.sendResponseHeaders(503, 5);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write("Busy!".getBytes());
+                }
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try (exchange) {
+                SLOW.await(10, TimeUnit.SECONDS);
+                exchange.sendResponseHeaders(404, -1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+        host = "127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterAll
+    public static void stop() {
+        SLOW.countDown();
+        server.stop(0);
+        CosmeticHttpClient.reset();
+    }
+
+    @Test
+    public void textureIsDownloaded() {
+        Download download = download("http://" + host + "/texture").join();
+        assertArrayEquals(TEXTURE, download.body());
+    }
+
+    @Test
+    public void missingTextureHasNoBody() {
+        assertNull(download("http://" + host + "/missing").join().body());
+    }
+
+    @Test
+    public void serverErrorFailsTheRequest() {
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> download("http://" + host + "/unavailable").get(5, TimeUnit.SECONDS));
+        assertTrue(exception.getCause().getMessage().contains("HTTP 503"), exception.getCause().getMessage());
+    }
+
+    @Test
+    public void longQueueDrainsWithoutRecursing() throws Exception {
+        // Holds the only connection to the host while the rest queue up behind it
+        CompletableFuture<Download> slow = download("http://" + host + "/slow");
+
+        // Given up on while queued, so each one frees its slot as soon as it comes up
+        List<CompletableFuture<Download>> queued = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            queued.add(download("http://" + host + "/texture"));
+        }
+        queued.forEach(request -> request.cancel(true));
+
+        SLOW.countDown();
+        assertNull(slow.get(5, TimeUnit.SECONDS).body());
+        assertEquals(TEXTURE.length, download("http://" + host + "/texture").get(5, TimeUnit.SECONDS).body().length);
+    }
+
+    private static CompletableFuture<Download> download(String url) {
+        return CosmeticHttpClient.download(new CosmeticConfig.CosmeticProviders("http-test", 0, url), url, 10_000, null);
+    }
+}
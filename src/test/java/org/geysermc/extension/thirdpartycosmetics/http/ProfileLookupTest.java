@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2026 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/ThirdPartyCosmetics
+ */
+
+package org.geysermc.extension.thirdpartycosmetics.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.geysermc.api.Geyser;
+import org.geysermc.extension.thirdpartycosmetics.FetchScheduler;
+import org.geysermc.extension.thirdpartycosmetics.ThirdPartyCosmetics;
+import org.geysermc.extension.thirdpartycosmetics.config.CosmeticConfig;
+import org.geysermc.geyser.api.GeyserApi;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ProfileLookupTest {
+    private static final byte[] CAPE = {1, 2, 3, 4};
+    private static final String ETAG = "\"profile\"";
+    private static final AtomicInteger REQUESTS = new AtomicInteger();
+
+    private static HttpServer server;
+    private static CosmeticConfig.CosmeticProviders provider;
+
+    @BeforeAll
+    public static void start() throws IOException {
+        // Requests are sent with the Geyser version in the user agent
+        Geyser.set((GeyserApi) Proxy.newProxyInstance(GeyserApi.class.getClassLoader(), new Class<?>[] {GeyserApi.class},
+            (proxy, method, args) -> method.getName().equals("geyserApiVersion") ? "test" : null));
+
+        CosmeticConfig config = new CosmeticConfig();
+        config.breakerFailureThreshold = 1;
+        config.breakerCooldown = 3600;
+        ThirdPartyCosmetics.applyConfig(config);
+
+        byte[] profile = ("{\"textures\":{\"cape\":\"" + Base64.getEncoder().encodeToString(CAPE) + "\"}}").getBytes(StandardCharsets.UTF_8);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            try (exchange) {
+                REQUESTS.incrementAndGet();
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                exchange.sendResponseHeaders(200, profile.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(profile);
+                }
+            }
+        });
+        server.start();
+
+        String host = "http://127.0.0.1:" + server.getAddress().getPort();
+        provider = new CosmeticConfig.CosmeticProviders("profile-test", 0, host + "/cape/{uuid}").withProfileUrl(host + "/profile/{uuid}");
+    }
+
+    @AfterAll
+    public static void stop() {
+        server.stop(0);
+    }
+
+    @BeforeEach
+    public void reset() {
+        REQUESTS.set(0);
+    }
+
+    @Test
+    public void failedProfileIsFetchedAgain() {
+        UUID playerId = UUID.randomUUID();
+
+        // Fail the provider enough times to open its breaker, requests then fail before they are sent
+        ProviderHealth health = ProviderHealth.of(provider.name());
+        health.failure(new IOException("Test failure"));
+        assertEquals(ProviderHealth.State.OPEN, health.state());
+
+        CompletableFuture<Download> failed = ProfileLookup.request(provider, playerId, "Player", ProfileLookup.CAPE, 1000, FetchScheduler.Priority.NORMAL, null);
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, REQUESTS.get());
+
+        // Once the breaker closes the profile is fetched rather than the failure being served again
+        health.success(1);
+        Download download = ProfileLookup.request(provider, playerId, "Player", ProfileLookup.CAPE, 1000, FetchScheduler.Priority.NORMAL, null).join();
+        assertEquals(1, REQUESTS.get());
+        assertArrayEquals(CAPE, download.body());
+    }
+
+    @Test
+    public void unchangedProfileIsRevalidated() {
+        Download download = ProfileLookup.request(provider, UUID.randomUUID(), "Player", ProfileLookup.CAPE, 1000, FetchScheduler.Priority.NORMAL, null).join();
+        assertFalse(download.notModified());
+        assertEquals(ETAG, download.validators().etag());
+
+        // Looked up again with the validators of the cached copy, the provider only confirms it is current
+        Download revalidated = ProfileLookup.request(provider, UUID.randomUUID(), "Player", ProfileLookup.CAPE, 1000, FetchScheduler.Priority.NORMAL, download.validators()).join();
+        assertTrue(revalidated.notModified());
+        assertNull(revalidated.body());
+        assertEquals(2, REQUESTS.get());
+    }
+
+    @Test
+    public void notModifiedIsOnlyServedToTheCopyItValidated() {
+        UUID playerId = UUID.randomUUID();
+
+        // The cape asks with the validators of its copy, the ears have nothing cached
+        Download cape = ProfileLookup.request(provider, playerId, "Player", ProfileLookup.CAPE, 1000, FetchScheduler.Priority.NORMAL, new Validators(ETAG, 0)).join();
+        Download ears = ProfileLookup.request(provider, playerId, "Player", ProfileLookup.EARS, 1000, FetchScheduler.Priority.NORMAL, null).join();
+        assertTrue(cape.notModified());
+        assertFalse(ears.notModified());
+        assertEquals(2, REQUESTS.get());
+    }
+}